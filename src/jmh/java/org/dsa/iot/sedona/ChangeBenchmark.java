@@ -0,0 +1,79 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import sedona.Slot;
+import sedona.sox.SoxComponent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks handling of component change events on a built tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChangeBenchmark {
+
+    @Param({"1000"})
+    public int components;
+
+    private SoxComponent[] points;
+    private Slot out;
+    private Slot priority;
+    private Sedona server;
+    private int index;
+    private float value;
+
+    @Setup
+    public void setup() throws Exception {
+        FakeApp app = FakeApp.create(components);
+        points = app.getPoints().toArray(new SoxComponent[components]);
+        out = points[0].type.slot("out");
+        priority = points[0].type.slot("priority");
+
+        Node root = new Node("bench", null, null);
+        server = new Sedona(root, null);
+        server.doBuildTree(root, app.getApp());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.destroy();
+    }
+
+    @Benchmark
+    public void runtimeChange() {
+        SoxComponent c = next();
+        c.setFloat(out, value++);
+        c.fireChanged(SoxComponent.RUNTIME);
+    }
+
+    @Benchmark
+    public void configChange() {
+        SoxComponent c = next();
+        c.set(priority, sedona.Short.make((int) (value++) & 0xF));
+        c.fireChanged(SoxComponent.CONFIG);
+    }
+
+    @Benchmark
+    public void unchangedRuntime() {
+        next().fireChanged(SoxComponent.RUNTIME);
+    }
+
+    private SoxComponent next() {
+        SoxComponent c = points[index++];
+        if (index == points.length) {
+            index = 0;
+        }
+        return c;
+    }
+}
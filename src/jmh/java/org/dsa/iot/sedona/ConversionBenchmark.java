@@ -0,0 +1,95 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import sedona.Type;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the value conversions between sedona and DSA for every
+ * primitive type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConversionBenchmark {
+
+    @Param({"bool", "byte", "short", "int", "long",
+            "float", "double", "str", "buf"})
+    public String type;
+
+    private sedona.Value sedonaValue;
+    private Value dsaValue;
+    private int typeId;
+
+    @Setup
+    public void setup() {
+        switch (type) {
+            case "bool":
+                typeId = Type.boolId;
+                sedonaValue = sedona.Bool.make(true);
+                dsaValue = new Value(true);
+                break;
+            case "byte":
+                typeId = Type.byteId;
+                sedonaValue = sedona.Byte.make(42);
+                dsaValue = new Value(42);
+                break;
+            case "short":
+                typeId = Type.shortId;
+                sedonaValue = sedona.Short.make(4242);
+                dsaValue = new Value(4242);
+                break;
+            case "int":
+                typeId = Type.intId;
+                sedonaValue = sedona.Int.make(424242);
+                dsaValue = new Value(424242);
+                break;
+            case "long":
+                typeId = Type.longId;
+                sedonaValue = sedona.Long.make(42424242424L);
+                dsaValue = new Value(42424242424L);
+                break;
+            case "float":
+                typeId = Type.floatId;
+                sedonaValue = sedona.Float.make(42.42f);
+                dsaValue = new Value(42.42f);
+                break;
+            case "double":
+                typeId = Type.doubleId;
+                sedonaValue = sedona.Double.make(42.4242);
+                dsaValue = new Value(42.4242);
+                break;
+            case "str":
+                typeId = Type.strId;
+                sedonaValue = sedona.Str.make("forty two");
+                dsaValue = new Value("forty two");
+                break;
+            case "buf":
+                typeId = Type.bufId;
+                sedonaValue = sedona.Buf.fromString("0x[cafebabe]");
+                dsaValue = new Value(sedonaValue.toString());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    @Benchmark
+    public Value fromSedonaValue() {
+        return Utils.fromSedonaValue(sedonaValue);
+    }
+
+    @Benchmark
+    public sedona.Value fromSdkValue() {
+        return Utils.fromSdkValue(dsaValue, typeId);
+    }
+}
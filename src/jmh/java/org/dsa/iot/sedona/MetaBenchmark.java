@@ -0,0 +1,33 @@
+package org.dsa.iot.sedona;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks packing and unpacking of the meta slot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetaBenchmark {
+
+    private int x = 12;
+    private int y = 34;
+    private int packed = Meta.pack(12, 34, true, false, true, false);
+
+    @Benchmark
+    public int pack() {
+        return Meta.pack(x, y, true, false, true, false);
+    }
+
+    @Benchmark
+    public Meta unpack() {
+        return new Meta(packed);
+    }
+}
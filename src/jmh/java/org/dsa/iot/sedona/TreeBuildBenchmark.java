@@ -0,0 +1,53 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the node tree of synthetic apps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TreeBuildBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int components;
+
+    private FakeApp app;
+    private Sedona server;
+    private Node root;
+
+    @Setup(Level.Trial)
+    public void setupApp() throws Exception {
+        app = FakeApp.create(components);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupTree() {
+        root = new Node("bench", null, null);
+        server = new Sedona(root, null);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownTree() {
+        server.destroy();
+    }
+
+    @Benchmark
+    public Node buildTree() {
+        server.doBuildTree(root, app.getApp());
+        return root;
+    }
+}
@@ -8,21 +8,39 @@ import org.dsa.iot.dslink.node.actions.Action;
 import org.dsa.iot.dslink.node.actions.ActionResult;
 import org.dsa.iot.dslink.node.actions.EditorType;
 import org.dsa.iot.dslink.node.actions.Parameter;
+import org.dsa.iot.dslink.node.actions.ResultType;
 import org.dsa.iot.dslink.node.actions.table.Row;
 import org.dsa.iot.dslink.node.actions.table.Table;
 import org.dsa.iot.dslink.node.value.Value;
 import org.dsa.iot.dslink.node.value.ValueType;
+import org.dsa.iot.dslink.util.Objects;
 import org.dsa.iot.dslink.util.json.JsonArray;
 import org.dsa.iot.dslink.util.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.dsa.iot.dslink.util.handler.Handler;
+import sedona.Link;
 import sedona.Slot;
 import sedona.Type;
+import sedona.sox.ISoxComm;
 import sedona.sox.KitVersion;
+import sedona.sox.SoxClient;
 import sedona.sox.SoxComponent;
+import sedona.sox.SoxFile;
 import sedona.sox.VersionInfo;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
 /**
  * @author Samuel Grenier
  */
@@ -30,6 +48,26 @@ public class Actions {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Actions.class);
 
+    /**
+     * Amount of history rows sent per update of the stream.
+     */
+    private static final int HISTORY_BATCH = 500;
+
+    /**
+     * Amount of components updated per request batch of a snapshot.
+     */
+    private static final int SNAPSHOT_BATCH = 200;
+
+    /**
+     * Amount of link rows sent per update of the stream.
+     */
+    private static final int LINK_BATCH = 500;
+
+    /**
+     * Minimum time in milliseconds between progress rows of a transfer.
+     */
+    private static final long PROGRESS_INTERVAL = 250;
+
     public static Action getAddServerAction(final Node node,
                                             final SubscriptionManager man) {
         final ValueType vt = ValueType.STRING;
@@ -41,6 +79,14 @@ public class Actions {
                 Value vPort = event.getParameter("port", ValueType.NUMBER);
                 Value vUser = event.getParameter("username", vt);
                 Value vPass = event.getParameter("password");
+                Value vWrites = event.getParameter("writeQueueMax");
+                Value vLazy = event.getParameter("lazy");
+                Value vIdle = event.getParameter("idleRelease");
+                Value vCache = event.getParameter("treeCache");
+                Value vLinger = event.getParameter("subscriptionLinger");
+                Value vDepth = event.getParameter("historyDepth");
+                Value vMemory = event.getParameter("historyMemory");
+                Value vPoll = event.getParameter("pollInterval");
 
                 String name = vName.getString();
                 if (node.getChild(name) == null) {
@@ -48,6 +94,36 @@ public class Actions {
                     builder.setRoConfig("url", vUrl);
                     builder.setRoConfig("port", vPort);
                     builder.setRoConfig("username", vUser);
+                    if (vWrites != null) {
+                        builder.setRoConfig("writeQueueMax", vWrites);
+                    }
+                    if (vLazy != null) {
+                        builder.setRoConfig("lazy", vLazy);
+                    }
+                    if (vIdle != null) {
+                        builder.setRoConfig("idleRelease", vIdle);
+                    }
+                    if (vCache != null) {
+                        builder.setRoConfig("treeCache", vCache);
+                    }
+                    if (vLinger != null) {
+                        builder.setRoConfig("subscriptionLinger", vLinger);
+                    }
+                    if (vDepth != null) {
+                        builder.setRoConfig("historyDepth", vDepth);
+                    }
+                    if (vMemory != null) {
+                        builder.setRoConfig("historyMemory", vMemory);
+                    }
+                    if (vPoll != null) {
+                        builder.setRoConfig("pollInterval", vPoll);
+                    }
+                    for (String config : DaspTuning.CONFIGS) {
+                        Value v = event.getParameter(config);
+                        if (v != null) {
+                            builder.setRoConfig(config, v);
+                        }
+                    }
                     if (vPass != null) {
                         char[] pass = vPass.getString().toCharArray();
                         builder.setPassword(pass);
@@ -77,9 +153,554 @@ public class Actions {
             p.setEditorType(EditorType.PASSWORD);
             a.addParameter(p);
         }
+        {
+            Parameter p = new Parameter("writeQueueMax", ValueType.NUMBER);
+            p.setDefaultValue(new Value(WriteQueue.DEFAULT_MAX));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("lazy", ValueType.BOOL);
+            p.setDefaultValue(new Value(false));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("idleRelease", ValueType.NUMBER);
+            p.setDefaultValue(new Value(LazyTree.DEFAULT_IDLE));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("treeCache", ValueType.BOOL);
+            p.setDefaultValue(new Value(true));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("subscriptionLinger", ValueType.NUMBER);
+            p.setDefaultValue(new Value(SubscriptionBatcher.DEFAULT_LINGER));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("historyDepth", ValueType.NUMBER);
+            p.setDescription("Values kept per slot, 0 to disable");
+            p.setDefaultValue(new Value(History.DEFAULT_DEPTH));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("historyMemory", ValueType.NUMBER);
+            p.setDescription("Megabytes");
+            p.setDefaultValue(new Value(History.DEFAULT_MEMORY));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("pollInterval", ValueType.NUMBER);
+            p.setDescription("Milliseconds, 0 to subscribe");
+            p.setDefaultValue(new Value(Poller.DEFAULT_INTERVAL));
+            a.addParameter(p);
+        }
+        addDaspParameters(a, null);
+        return a;
+    }
+
+    public static Action getEditDaspAction(final Sedona sed, final Node node) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                for (String config : DaspTuning.CONFIGS) {
+                    Value v = event.getParameter(config);
+                    if (v == null) {
+                        node.removeRoConfig(config);
+                    } else {
+                        node.setRoConfig(config, v);
+                    }
+                }
+                sed.getDaspTuner().setTuning(DaspTuning.fromNode(node));
+                // Show the new settings the next time the action is opened
+                Node edit = node.getChild("editDasp");
+                if (edit != null) {
+                    edit.setAction(getEditDaspAction(sed, node));
+                }
+
+                Value vReconnect = event.getParameter("reconnect");
+                if (vReconnect != null && vReconnect.getBool()) {
+                    sed.reconnect();
+                }
+            }
+        });
+        addDaspParameters(a, sed.getDaspTuner().getTuning());
+        {
+            Parameter p = new Parameter("reconnect", ValueType.BOOL);
+            p.setDescription("Apply the settings right away");
+            p.setDefaultValue(new Value(true));
+            a.addParameter(p);
+        }
+        return a;
+    }
+
+    /**
+     * Adds the DASP settings of a server as parameters. Empty settings
+     * use the global defaults.
+     *
+     * @param a Action to add the parameters to.
+     * @param tuning Current settings, {@code null} for a new server.
+     */
+    private static void addDaspParameters(Action a, DaspTuning tuning) {
+        {
+            Parameter p = new Parameter(DaspTuning.IDEAL_MAX, ValueType.NUMBER);
+            p.setDescription("Bytes");
+            if (tuning != null && tuning.getIdealMax() > 0) {
+                p.setDefaultValue(new Value(tuning.getIdealMax()));
+            }
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter(DaspTuning.RECEIVE_TIMEOUT, ValueType.NUMBER);
+            p.setDescription("Milliseconds");
+            if (tuning != null && tuning.getReceiveTimeout() > 0) {
+                p.setDefaultValue(new Value(tuning.getReceiveTimeout()));
+            }
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter(DaspTuning.CONNECT_TIMEOUT, ValueType.NUMBER);
+            p.setDescription("Milliseconds");
+            if (tuning != null && tuning.getConnectTimeout() > 0) {
+                p.setDefaultValue(new Value(tuning.getConnectTimeout()));
+            }
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter(DaspTuning.SEND_RETRY, ValueType.NUMBER);
+            p.setDescription("Milliseconds");
+            if (tuning != null && tuning.getSendRetry() > 0) {
+                p.setDefaultValue(new Value(tuning.getSendRetry()));
+            }
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter(DaspTuning.ADAPTIVE, ValueType.BOOL);
+            p.setDescription("Adapt the retry time and packet size to the link");
+            p.setDefaultValue(new Value(tuning != null && tuning.isAdaptive()));
+            a.addParameter(p);
+        }
+    }
+
+    public static Action getFleetCommandAction(final Node superRoot) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Value vPattern = event.getParameter("pattern", ValueType.STRING);
+                Value vValue = event.getParameter("value");
+                Value vLimit = event.getParameter("concurrency",
+                        new Value(FleetCommand.DEFAULT_CONCURRENCY));
+                Value vTimeout = event.getParameter("timeout",
+                        new Value(FleetCommand.DEFAULT_TIMEOUT));
+
+                FleetCommand cmd = new FleetCommand(superRoot,
+                        vPattern.getString(),
+                        vValue == null ? null : vValue.getString(),
+                        vLimit.getNumber().intValue(),
+                        vTimeout.getNumber().longValue() * 1000);
+                Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                cmd.run(table);
+            }
+        });
+        {
+            Parameter p = new Parameter("pattern", ValueType.STRING);
+            p.setDescription("server/component/.../slot, * and ? match any characters");
+            p.setPlaceHolder("*/app/*/setpoint");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("value", ValueType.STRING);
+            p.setDescription("Value to write, or argument of the actions");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("concurrency", ValueType.NUMBER);
+            p.setDefaultValue(new Value(FleetCommand.DEFAULT_CONCURRENCY));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("timeout", ValueType.NUMBER);
+            p.setDescription("Seconds per server");
+            p.setDefaultValue(new Value(FleetCommand.DEFAULT_TIMEOUT));
+            a.addParameter(p);
+        }
+        a.addResult(new Parameter("server", ValueType.STRING));
+        a.addResult(new Parameter("status", ValueType.STRING));
+        a.addResult(new Parameter("slots", ValueType.NUMBER));
+        a.addResult(new Parameter("latency", ValueType.NUMBER));
+        a.addResult(new Parameter("error", ValueType.STRING));
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    public static Action getSearchAction(final Node superRoot) {
+        Action a = new Action(Permission.READ, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Pattern server = Utils.glob(getString(event, "server", "*"));
+                String type = getString(event, "type", null);
+                String name = getString(event, "name", null);
+                String path = getString(event, "path", null);
+                String slot = getString(event, "slot", null);
+                String value = getString(event, "value", null);
+                Pattern valuePattern = value == null ? null : Utils.glob(value);
+                Value vLimit = event.getParameter("limit",
+                        new Value(ComponentIndex.DEFAULT_LIMIT));
+                int limit = vLimit.getNumber().intValue();
+
+                Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                int count = 0;
+                Map<String, Node> children = superRoot.getChildren();
+                if (children != null) {
+                    for (Node child : children.values()) {
+                        if (count >= limit) {
+                            break;
+                        }
+                        if (!Sedona.isServer(child)
+                                || !server.matcher(child.getName()).matches()
+                                || !(child.getMetaData() instanceof Sedona)) {
+                            continue;
+                        }
+                        Sedona sed = (Sedona) child.getMetaData();
+                        SoxClient client = sed.getClient();
+                        // Slot values are checked after the index narrowed
+                        // the components down
+                        int max = slot == null ? limit - count : Integer.MAX_VALUE;
+                        List<Row> rows = new ArrayList<>();
+                        for (ComponentIndex.Match m : sed.getIndex().find(type, name, path, max)) {
+                            if (count >= limit) {
+                                break;
+                            }
+                            if (slot != null && !matchesSlot(client, m.getId(),
+                                                             slot, valuePattern)) {
+                                continue;
+                            }
+                            rows.add(Row.make(new Value(child.getPath() + "/" + m.getPath()),
+                                              new Value(m.getType())));
+                            count++;
+                        }
+                        if (!rows.isEmpty()) {
+                            table.addBatchRows(rows);
+                        }
+                    }
+                }
+                table.close();
+            }
+        });
+        {
+            Parameter p = new Parameter("server", ValueType.STRING);
+            p.setDefaultValue(new Value("*"));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("type", ValueType.STRING);
+            p.setDescription("Type of the components, e.g. control::NumericWritable");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("name", ValueType.STRING);
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("path", ValueType.STRING);
+            p.setDescription("Path below the server, e.g. app/plant/*");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("slot", ValueType.STRING);
+            p.setDescription("Only components having this slot");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("value", ValueType.STRING);
+            p.setDescription("Cached value of the slot");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("limit", ValueType.NUMBER);
+            p.setDefaultValue(new Value(ComponentIndex.DEFAULT_LIMIT));
+            a.addParameter(p);
+        }
+        a.addResult(new Parameter("path", ValueType.STRING));
+        a.addResult(new Parameter("type", ValueType.STRING));
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    /**
+     * Checks the cached value of a slot, enums are compared by tag.
+     */
+    private static boolean matchesSlot(SoxClient client, int id,
+                                       String slot, Pattern value) {
+        SoxComponent c = client == null ? null : client.cache(id);
+        if (c == null) {
+            return false;
+        }
+        for (SlotInfo info : TypeCache.getSlots(c.type)) {
+            if (!info.getName().equals(slot) || info.isAction()) {
+                continue;
+            }
+            if (value == null) {
+                return true;
+            }
+            sedona.Value val = c.get(info.getSlot());
+            if (val == null) {
+                return false;
+            }
+            String text = val.encodeString();
+            if (info.isEnum()) {
+                String[] range = info.getRange();
+                int ordinal = SlotInfo.ordinal(val);
+                if (ordinal >= 0 && ordinal < range.length) {
+                    text = range[ordinal];
+                }
+            }
+            return value.matcher(text).matches();
+        }
+        return false;
+    }
+
+    private static String getString(ActionResult event, String name, String def) {
+        Value v = event.getParameter(name);
+        if (v == null || v.getString() == null || v.getString().isEmpty()) {
+            return def;
+        }
+        return v.getString();
+    }
+
+    public static Action getBackupAction(final Node superRoot) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                String servers = getString(event, "servers", "*");
+                String files = getString(event, "files", Backup.DEFAULT_FILES);
+                Value vLimit = event.getParameter("concurrency",
+                        new Value(Backup.DEFAULT_CONCURRENCY));
+
+                List<String> uris = new ArrayList<>();
+                for (String uri : files.split(",")) {
+                    if (!uri.trim().isEmpty()) {
+                        uris.add(uri.trim());
+                    }
+                }
+                Backup backup = new Backup(superRoot, servers,
+                        uris.toArray(new String[uris.size()]),
+                        Backup.getDefaultDir(),
+                        vLimit.getNumber().intValue());
+                Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                backup.run(table);
+            }
+        });
+        {
+            Parameter p = new Parameter("servers", ValueType.STRING);
+            p.setDefaultValue(new Value("*"));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("files", ValueType.STRING);
+            p.setDescription("Comma separated files of every server");
+            p.setDefaultValue(new Value(Backup.DEFAULT_FILES));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("concurrency", ValueType.NUMBER);
+            p.setDefaultValue(new Value(Backup.DEFAULT_CONCURRENCY));
+            a.addParameter(p);
+        }
+        a.addResult(new Parameter("server", ValueType.STRING));
+        a.addResult(new Parameter("file", ValueType.STRING));
+        a.addResult(new Parameter("status", ValueType.STRING));
+        a.addResult(new Parameter("bytes", ValueType.NUMBER));
+        a.addResult(new Parameter("latency", ValueType.NUMBER));
+        a.addResult(new Parameter("error", ValueType.STRING));
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    public static Action getGetFileAction(final Sedona sed) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                final String uri = event.getParameter("uri", ValueType.STRING).getString();
+                String path = getString(event, "file", uri);
+                final SoxClient client = sed.getClient();
+                if (client == null) {
+                    throw new IllegalStateException("Not connected");
+                }
+                final File file;
+                try {
+                    file = Backup.resolve(new File(Backup.getDefaultDir(), sed.getName()), path);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                final Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                transfer(table, new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        File tmp = new File(file.getPath() + ".part");
+                        long size = Backup.download(client, uri, tmp, progress(table));
+                        if (file.exists() && !file.delete()) {
+                            throw new IOException("Failed to replace " + file);
+                        }
+                        if (!tmp.renameTo(file)) {
+                            throw new IOException("Failed to write " + file);
+                        }
+                        return size;
+                    }
+                });
+            }
+        });
+        {
+            Parameter p = new Parameter("uri", ValueType.STRING);
+            p.setPlaceHolder("app.sab");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("file", ValueType.STRING);
+            p.setDescription("Path in the backup directory of the server, defaults to the uri");
+            a.addParameter(p);
+        }
+        addTransferResults(a);
         return a;
     }
 
+    public static Action getPutFileAction(final Sedona sed) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                final String uri = event.getParameter("uri", ValueType.STRING).getString();
+                String path = getString(event, "file", uri);
+                final SoxClient client = sed.getClient();
+                if (client == null) {
+                    throw new IllegalStateException("Not connected");
+                }
+                final File file;
+                try {
+                    file = Backup.resolve(new File(Backup.getDefaultDir(), sed.getName()), path);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                if (!file.isFile()) {
+                    throw new IllegalArgumentException("No such file: " + path);
+                }
+                final Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                transfer(table, new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        client.putFile(uri, SoxFile.make(file), null, progress(table));
+                        return file.length();
+                    }
+                });
+            }
+        });
+        {
+            Parameter p = new Parameter("uri", ValueType.STRING);
+            p.setPlaceHolder("app.sab");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("file", ValueType.STRING);
+            p.setDescription("Path in the backup directory of the server, defaults to the uri");
+            a.addParameter(p);
+        }
+        addTransferResults(a);
+        return a;
+    }
+
+    public static Action getProvisionAction(final Sedona sed) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Value vTemplate = event.getParameter("template", ValueType.STRING);
+                Value vDryRun = event.getParameter("dryRun", new Value(false));
+                final Provisioner provisioner = new Provisioner(sed,
+                        new JsonObject(vTemplate.getString()),
+                        vDryRun.getBool());
+                final Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                Objects.getDaemonThreadPool().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        provisioner.run(table);
+                    }
+                });
+            }
+        });
+        {
+            Parameter p = new Parameter("template", ValueType.STRING);
+            p.setDescription("JSON template of components, config and links");
+            p.setEditorType(EditorType.TEXT_AREA);
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("dryRun", ValueType.BOOL);
+            p.setDescription("Only report the differences");
+            p.setDefaultValue(new Value(false));
+            a.addParameter(p);
+        }
+        a.addResult(new Parameter("op", ValueType.STRING));
+        a.addResult(new Parameter("path", ValueType.STRING));
+        a.addResult(new Parameter("detail", ValueType.STRING));
+        a.addResult(new Parameter("error", ValueType.STRING));
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    private static void addTransferResults(Action a) {
+        a.addResult(new Parameter("status", ValueType.STRING));
+        a.addResult(new Parameter("bytes", ValueType.NUMBER));
+        a.addResult(new Parameter("size", ValueType.NUMBER));
+        a.setResultType(ResultType.STREAM);
+    }
+
+    /**
+     * Runs a file transfer off the calling thread. The client is locked
+     * for the whole transfer, so other requests to the server wait.
+     */
+    private static void transfer(final Table table, final Callable<Long> task) {
+        Objects.getDaemonThreadPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long size = task.call();
+                    table.addRow(Row.make(new Value("done"), new Value(size), new Value(size)));
+                } catch (Exception e) {
+                    LOGGER.warn("File transfer failed", e);
+                    String error = e.getMessage() != null ? e.getMessage() : e.toString();
+                    table.addRow(Row.make(new Value(error), new Value(0), new Value(0)));
+                }
+                table.close();
+            }
+        });
+    }
+
+    /**
+     * Streams the progress of a transfer, at most a row per
+     * {@link #PROGRESS_INTERVAL}.
+     */
+    private static ISoxComm.TransferListener progress(final Table table) {
+        return new ISoxComm.TransferListener() {
+            private long last;
+
+            @Override
+            public void progress(int bytes, int size) {
+                long now = System.currentTimeMillis();
+                if (now - last >= PROGRESS_INTERVAL) {
+                    last = now;
+                    table.addRow(Row.make(new Value("transferring"),
+                                          new Value(Math.min(bytes, size)),
+                                          new Value(size)));
+                }
+            }
+        };
+    }
+
     public static Action getInvokableSedonaNode(final Sedona sed,
                                                 final Slot slot,
                                                 final SoxComponent comp) {
@@ -119,12 +740,444 @@ public class Actions {
         return a;
     }
 
+    /**
+     * Sets the change of value filter of a server or of a node below it.
+     * Settings with a deadband and intervals of 0 publish every change.
+     */
+    public static Action getSetCovAction(final Sedona sed) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Value vPath = event.getParameter("path");
+                Value vRemove = event.getParameter("remove");
+                String path = vPath == null ? "" : vPath.getString();
+                if (vRemove != null && vRemove.getBool()) {
+                    sed.getCovFilter().set(path, null);
+                    return;
+                }
+
+                Value vBand = event.getParameter("deadband", new Value(0));
+                Value vPercent = event.getParameter("percent", new Value(false));
+                Value vMin = event.getParameter("minInterval", new Value(0));
+                Value vMax = event.getParameter("maxInterval", new Value(0));
+                CovSettings s = new CovSettings(vBand.getNumber().doubleValue(),
+                                                vPercent.getBool(),
+                                                vMin.getNumber().longValue(),
+                                                vMax.getNumber().longValue());
+                sed.getCovFilter().set(path, s);
+            }
+        });
+        {
+            Parameter p = new Parameter("path", ValueType.STRING);
+            p.setDescription("Path relative to the server, empty for all nodes");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("deadband", ValueType.NUMBER);
+            p.setDefaultValue(new Value(0));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("percent", ValueType.BOOL);
+            p.setDefaultValue(new Value(false));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("minInterval", ValueType.NUMBER);
+            p.setDescription("Milliseconds");
+            p.setDefaultValue(new Value(0));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("maxInterval", ValueType.NUMBER);
+            p.setDescription("Milliseconds, 0 to disable");
+            p.setDefaultValue(new Value(0));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("remove", ValueType.BOOL);
+            p.setDefaultValue(new Value(false));
+            a.addParameter(p);
+        }
+        return a;
+    }
+
+    public static Action getSetPollAction(final Sedona sed) {
+        Action a = new Action(Permission.CONFIG, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Value vPath = event.getParameter("path");
+                Value vRemove = event.getParameter("remove");
+                Value vInterval = event.getParameter("interval", new Value(0));
+                String path = vPath == null ? "" : vPath.getString();
+                long interval = vInterval.getNumber().longValue();
+                if (vRemove != null && vRemove.getBool()) {
+                    interval = -1;
+                }
+                sed.getPoller().set(path, Math.max(interval, -1));
+                sed.getSubscriptions().refresh();
+            }
+        });
+        {
+            Parameter p = new Parameter("path", ValueType.STRING);
+            p.setDescription("Path relative to the server, empty for all nodes");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("interval", ValueType.NUMBER);
+            p.setDescription("Milliseconds, 0 to subscribe");
+            p.setDefaultValue(new Value(0));
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("remove", ValueType.BOOL);
+            p.setDefaultValue(new Value(false));
+            a.addParameter(p);
+        }
+        return a;
+    }
+
+    public static Action getHistoryAction(final Sedona sed,
+                                          final Node node,
+                                          final SlotInfo info) {
+        Action a = new Action(Permission.READ, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                long from = Long.MIN_VALUE;
+                long to = Long.MAX_VALUE;
+                Value vRange = event.getParameter("Timerange");
+                if (vRange != null && vRange.getString() != null) {
+                    String[] range = vRange.getString().split("/");
+                    try {
+                        from = History.parseTime(range[0]);
+                        if (range.length > 1) {
+                            to = History.parseTime(range[1]);
+                        }
+                    } catch (ParseException e) {
+                        throw new IllegalArgumentException("Invalid time range: " + vRange.getString());
+                    }
+                }
+                Value vInterval = event.getParameter("Interval", new Value(0));
+                Value vRollup = event.getParameter("Rollup", new Value("avg"));
+                long interval = vInterval.getNumber().longValue() * 1000;
+
+                HistoryBuffer buffer = sed.getHistory().get(node.getPath());
+                HistoryBuffer.Records records = buffer == null
+                        ? new HistoryBuffer.Records(0)
+                        : buffer.read(from, to);
+                boolean rolledUp = interval > 0;
+                if (rolledUp) {
+                    String rollup = vRollup.getString().toUpperCase();
+                    records = History.rollup(records, interval,
+                                             History.Rollup.valueOf(rollup));
+                }
+
+                Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                List<Row> rows = new ArrayList<>();
+                for (int i = 0; i < records.size(); i++) {
+                    Value time = new Value(History.formatTime(records.times[i]));
+                    Value value;
+                    if (rolledUp) {
+                        value = new Value(records.values[i]);
+                    } else {
+                        int id = info.getTypeId();
+                        value = info.toDsa(History.toSedona(id, records.values[i]));
+                    }
+                    rows.add(Row.make(time, value));
+                    if (rows.size() == HISTORY_BATCH) {
+                        table.addBatchRows(rows);
+                        rows = new ArrayList<>();
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    table.addBatchRows(rows);
+                }
+                table.close();
+            }
+        });
+        {
+            Parameter p = new Parameter("Timerange", ValueType.STRING);
+            p.setEditorType(EditorType.DATE_RANGE);
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("Interval", ValueType.NUMBER);
+            p.setDescription("Seconds, 0 for the raw values");
+            p.setDefaultValue(new Value(0));
+            a.addParameter(p);
+        }
+        {
+            ValueType vt = ValueType.makeEnum("avg", "min", "max");
+            Parameter p = new Parameter("Rollup", vt);
+            p.setDefaultValue(new Value("avg"));
+            a.addParameter(p);
+        }
+        a.addResult(new Parameter("timestamp", ValueType.TIME));
+        a.addResult(new Parameter("value", ValueType.DYNAMIC));
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    public static Action getSnapshotAction(final Sedona sed,
+                                           final Node node,
+                                           final int id) {
+        Action a = new Action(Permission.READ, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                Value vType = event.getParameter("type");
+                Value vSlots = event.getParameter("slots");
+                String type = vType == null ? null : vType.getString();
+                Set<String> slots = null;
+                if (vSlots != null && vSlots.getString() != null) {
+                    slots = new HashSet<>();
+                    for (String name : vSlots.getString().split(",")) {
+                        if (!name.trim().isEmpty()) {
+                            slots.add(name.trim());
+                        }
+                    }
+                    if (slots.isEmpty()) {
+                        slots = null;
+                    }
+                }
+
+                SoxClient client = sed.getClient();
+                if (client == null) {
+                    throw new IllegalStateException("Not connected");
+                }
+                List<SoxComponent> comps = new ArrayList<>();
+                List<String> paths = new ArrayList<>();
+                try {
+                    collectSubtree(sed, client.load(id), node.getPath(),
+                                   type, comps, paths);
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to load subtree", e);
+                }
+
+                Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                int mask = SoxComponent.CONFIG | SoxComponent.RUNTIME;
+                for (int i = 0; i < comps.size(); i += SNAPSHOT_BATCH) {
+                    int end = Math.min(i + SNAPSHOT_BATCH, comps.size());
+                    List<SoxComponent> batch = comps.subList(i, end);
+                    try {
+                        long start = System.nanoTime();
+                        client.update(batch.toArray(new SoxComponent[batch.size()]), mask);
+                        sed.getMetrics().record(Metrics.Op.UPDATE, start);
+                    } catch (Exception e) {
+                        LOGGER.warn("Failed to update components of {}", node.getPath(), e);
+                        break;
+                    }
+
+                    List<Row> rows = new ArrayList<>();
+                    for (int j = i; j < end; j++) {
+                        SoxComponent c = comps.get(j);
+                        Value path = new Value(paths.get(j));
+                        for (SlotInfo info : TypeCache.getSlots(c.type)) {
+                            if (info.isAction()
+                                    || (slots != null && !slots.contains(info.getName()))) {
+                                continue;
+                            }
+                            Value value = info.toDsa(c.get(info.getSlot()));
+                            rows.add(Row.make(path, new Value(info.getName()), value));
+                        }
+                    }
+                    if (!rows.isEmpty()) {
+                        table.addBatchRows(rows);
+                    }
+                }
+                table.close();
+            }
+        });
+        {
+            Parameter p = new Parameter("type", ValueType.STRING);
+            p.setDescription("Only components of this type, e.g. control::Add2");
+            a.addParameter(p);
+        }
+        {
+            Parameter p = new Parameter("slots", ValueType.STRING);
+            p.setDescription("Comma separated slot names, empty for all");
+            a.addParameter(p);
+        }
+        a.addResult(new Parameter("path", ValueType.STRING));
+        a.addResult(new Parameter("slot", ValueType.STRING));
+        a.addResult(new Parameter("value", ValueType.DYNAMIC));
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    public static Action getLinksAction(final Sedona sed, final int id) {
+        Action a = new Action(Permission.READ, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                SoxClient client = sed.getClient();
+                if (client == null) {
+                    throw new IllegalStateException("Not connected");
+                }
+                Link[] links;
+                try {
+                    links = sed.getLinkCache().get(id);
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to load links", e);
+                }
+                String prefix = sed.getNode().getPath() + "/";
+                Table table = event.getTable();
+                for (Link link : links) {
+                    table.addRow(linkRow(client, link,
+                            linkPath(client, prefix, link.fromCompId),
+                            linkPath(client, prefix, link.toCompId)));
+                }
+            }
+        });
+        addLinkResults(a);
+        a.setResultType(ResultType.TABLE);
+        return a;
+    }
+
+    public static Action getLinkGraphAction(final Sedona sed) {
+        Action a = new Action(Permission.READ, new Handler<ActionResult>() {
+            @Override
+            public void handle(ActionResult event) {
+                SoxClient client = sed.getClient();
+                if (client == null) {
+                    throw new IllegalStateException("Not connected");
+                }
+                List<SoxComponent> comps = new ArrayList<>();
+                List<String> paths = new ArrayList<>();
+                Map<Integer, Link[]> links;
+                try {
+                    SoxComponent app = client.load(0);
+                    String path = sed.getNode().getPath() + "/" + app.name();
+                    collectSubtree(sed, app, path, null, comps, paths);
+                    int[] ids = new int[comps.size()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = comps.get(i).id();
+                    }
+                    links = sed.getLinkCache().get(ids);
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to load links", e);
+                }
+                Map<Integer, String> byId = new HashMap<>();
+                for (int i = 0; i < comps.size(); i++) {
+                    byId.put(comps.get(i).id(), paths.get(i));
+                }
+
+                Table table = event.getTable();
+                table.setMode(Table.Mode.APPEND);
+                List<Row> rows = new ArrayList<>();
+                for (Link link : LinkCache.distinct(links.values())) {
+                    String from = byId.get(link.fromCompId);
+                    String to = byId.get(link.toCompId);
+                    rows.add(linkRow(client, link,
+                            from != null ? from : String.valueOf(link.fromCompId),
+                            to != null ? to : String.valueOf(link.toCompId)));
+                    if (rows.size() == LINK_BATCH) {
+                        table.addBatchRows(rows);
+                        rows = new ArrayList<>();
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    table.addBatchRows(rows);
+                }
+                table.close();
+            }
+        });
+        addLinkResults(a);
+        a.setResultType(ResultType.STREAM);
+        return a;
+    }
+
+    private static void addLinkResults(Action a) {
+        a.addResult(new Parameter("from", ValueType.STRING));
+        a.addResult(new Parameter("fromSlot", ValueType.STRING));
+        a.addResult(new Parameter("to", ValueType.STRING));
+        a.addResult(new Parameter("toSlot", ValueType.STRING));
+    }
+
+    private static Row linkRow(SoxClient client, Link link,
+                               String from, String to) {
+        return Row.make(new Value(from),
+                        new Value(slotName(client, link.fromCompId, link.fromSlotId)),
+                        new Value(to),
+                        new Value(slotName(client, link.toCompId, link.toSlotId)));
+    }
+
+    private static String linkPath(SoxClient client, String prefix, int id) {
+        String path = LinkCache.path(client, id);
+        return path != null ? prefix + path : String.valueOf(id);
+    }
+
+    private static String slotName(SoxClient client, int id, int slotId) {
+        SoxComponent c = client.cache(id);
+        Slot slot = c == null ? null : c.type.slot(slotId);
+        return slot != null ? slot.name : String.valueOf(slotId);
+    }
+
+    /**
+     * Collects the components of a subtree. Every level is loaded in a
+     * single batch, which costs nothing for components already cached.
+     *
+     * @param sed Server of the subtree.
+     * @param root Root of the subtree.
+     * @param path DSA path of the root.
+     * @param type Type filter, {@code null} to collect every component.
+     * @param comps Collected components.
+     * @param paths DSA paths of the collected components.
+     */
+    private static void collectSubtree(Sedona sed, SoxComponent root,
+                                       String path, String type,
+                                       List<SoxComponent> comps,
+                                       List<String> paths) throws Exception {
+        SoxClient client = root.client();
+        List<SoxComponent> level = new ArrayList<>();
+        List<String> levelPaths = new ArrayList<>();
+        level.add(root);
+        levelPaths.add(path);
+        while (!level.isEmpty()) {
+            List<Integer> ids = new ArrayList<>();
+            List<String> idPaths = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                SoxComponent c = level.get(i);
+                String p = levelPaths.get(i);
+                if (type == null || type.isEmpty()
+                        || type.equals(c.type.qname) || type.equals(c.type.name)) {
+                    comps.add(c);
+                    paths.add(p);
+                }
+                for (int child : c.childrenIds()) {
+                    ids.add(child);
+                    idPaths.add(p);
+                }
+            }
+
+            level = new ArrayList<>();
+            levelPaths = new ArrayList<>();
+            if (ids.isEmpty()) {
+                break;
+            }
+            int[] array = new int[ids.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = ids.get(i);
+            }
+            long start = System.nanoTime();
+            SoxComponent[] children = client.load(array, false);
+            sed.getMetrics().record(Metrics.Op.LOAD, start);
+            for (int i = 0; i < children.length; i++) {
+                SoxComponent c = children[i];
+                if (c != null) {
+                    level.add(c);
+                    levelPaths.add(idPaths.get(i) + "/" + c.name());
+                }
+            }
+        }
+    }
+
     public static Action getVersion(final Sedona sed) {
         Action a = new Action(Permission.READ, new Handler<ActionResult>() {
             @Override
             public void handle(ActionResult event) {
                 try {
-                    VersionInfo info = sed.getClient().readVersion();
+                    VersionInfo info = sed.readVersion();
 
                     Table table = event.getTable();
                     table.addRow(Row.make(new Value(info.platformId)));
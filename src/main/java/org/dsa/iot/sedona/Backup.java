@@ -0,0 +1,295 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.actions.table.Row;
+import org.dsa.iot.dslink.node.actions.table.Table;
+import org.dsa.iot.dslink.node.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.sox.ISoxComm;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Backs up files of every server matching a name pattern in parallel.
+ * Files are transferred straight into a temporary file next to the
+ * backup, which only replaces the backup if its checksum changed. SOX
+ * exposes no checksum, size or modification time of a remote file, so
+ * the checksum can only be compared after the transfer and an unchanged
+ * file only saves the disk write. The scode of a server is the only file
+ * skipped before the transfer, once its kits are unchanged. Every file
+ * reports a row.
+ */
+public class Backup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Backup.class);
+
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    public static final String DEFAULT_FILES = "app.sab,kits.scode";
+
+    /**
+     * Name of the file holding the checksums of the backups of a server.
+     */
+    private static final String MANIFEST = "backup.properties";
+
+    private final Node superRoot;
+    private final Pattern servers;
+    private final String[] files;
+    private final File dir;
+    private final int concurrency;
+
+    /**
+     * @param superRoot Node holding the servers.
+     * @param servers Pattern of the server names.
+     * @param files Files to back up from every server.
+     * @param dir Directory of the backups, every server gets a directory
+     *            in it.
+     * @param concurrency Maximum amount of servers handled at once.
+     */
+    public Backup(Node superRoot, String servers, String[] files,
+                  File dir, int concurrency) {
+        this.superRoot = superRoot;
+        this.servers = Utils.glob(servers);
+        this.files = files;
+        this.dir = dir;
+        this.concurrency = Math.max(concurrency, 1);
+    }
+
+    /**
+     * @return Default directory of the backups.
+     */
+    public static File getDefaultDir() {
+        String home = System.getProperty("sedona.home", "");
+        return new File(home, "backups");
+    }
+
+    /**
+     * Runs the backup, streaming a row per file into the table. The table
+     * is closed once every server is done.
+     *
+     * @param table Table of the results.
+     */
+    public void run(final Table table) {
+        List<Sedona> matches = new ArrayList<>();
+        Map<String, Node> children = superRoot.getChildren();
+        if (children != null) {
+            for (Node child : children.values()) {
+                if (Sedona.isServer(child)
+                        && servers.matcher(child.getName()).matches()
+                        && child.getMetaData() instanceof Sedona) {
+                    matches.add((Sedona) child.getMetaData());
+                }
+            }
+        }
+        if (matches.isEmpty()) {
+            table.close();
+            return;
+        }
+
+        int limit = Math.min(concurrency, matches.size());
+        ExecutorService pool = Executors.newFixedThreadPool(limit,
+                ServerExecutor.newThreadFactory("sedona-backup"));
+        final AtomicInteger remaining = new AtomicInteger(matches.size());
+        for (final Sedona sedona : matches) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        backup(sedona, table);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            synchronized (table) {
+                                table.close();
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+    }
+
+    private void backup(Sedona sedona, Table table) {
+        String name = sedona.getName();
+        SoxClient client = sedona.getClient();
+        if (client == null) {
+            report(table, name, null, "error", 0, System.nanoTime(), "Not connected");
+            return;
+        }
+
+        File serverDir = new File(dir, name);
+        File manifestFile = new File(serverDir, MANIFEST);
+        Properties manifest = readManifest(manifestFile);
+        String kits = null;
+        try {
+            kits = TreeSnapshot.key(sedona.readVersion());
+        } catch (Exception e) {
+            LOGGER.debug("Failed to read version of '{}'", name, e);
+        }
+
+        boolean dirty = false;
+        for (String uri : files) {
+            long start = System.nanoTime();
+            try {
+                File file = resolve(serverDir, uri);
+                boolean scode = uri.endsWith(".scode");
+                if (scode && kits != null && file.isFile()
+                        && kits.equals(manifest.getProperty(uri + ".kits"))) {
+                    report(table, name, uri, "unchanged", 0, start, null);
+                    continue;
+                }
+
+                File tmp = new File(file.getPath() + ".part");
+                long size = download(client, uri, tmp, null);
+                long crc = checksum(tmp);
+                String sum = Long.toHexString(crc);
+                String status;
+                if (file.isFile() && sum.equals(manifest.getProperty(uri + ".crc"))) {
+                    // Transferred anyway, only the write is saved
+                    delete(tmp);
+                    status = "unchanged";
+                } else {
+                    replace(tmp, file);
+                    manifest.setProperty(uri + ".crc", sum);
+                    status = "saved";
+                    dirty = true;
+                }
+                if (scode && kits != null
+                        && !kits.equals(manifest.getProperty(uri + ".kits"))) {
+                    manifest.setProperty(uri + ".kits", kits);
+                    dirty = true;
+                }
+                report(table, name, uri, status, size, start, null);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to back up {} of '{}'", uri, name, e);
+                String error = e.getMessage() != null ? e.getMessage() : e.toString();
+                report(table, name, uri, "error", 0, start, error);
+            }
+        }
+
+        if (dirty) {
+            try {
+                writeManifest(manifestFile, manifest);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write backup manifest of '{}'", name, e);
+            }
+        }
+    }
+
+    private static void report(Table table, String server, String file,
+                               String status, long bytes, long start,
+                               String error) {
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Row row = Row.make(new Value(server),
+                           new Value(file),
+                           new Value(status),
+                           new Value(bytes),
+                           new Value(latency),
+                           new Value(error));
+        synchronized (table) {
+            table.addRow(row);
+        }
+    }
+
+    /**
+     * Transfers a file from a server into a local file. Chunks are
+     * written to the file as they arrive.
+     *
+     * @param client Client of the server.
+     * @param uri URI of the file on the server.
+     * @param file Local file, its directory is created when missing.
+     * @param listener Progress listener, can be {@code null}.
+     * @return Size of the file in bytes.
+     */
+    static long download(SoxClient client, String uri, File file,
+                         ISoxComm.TransferListener listener) throws Exception {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        client.getFile(uri, SoxFile.make(file), null, listener);
+        return file.length();
+    }
+
+    /**
+     * Resolves the local file of a path, which may not leave the
+     * directory.
+     *
+     * @param dir Directory of the file.
+     * @param path Path relative to the directory.
+     * @return Local file.
+     */
+    static File resolve(File dir, String path) throws IOException {
+        File file = new File(dir, path.replace(':', '_'));
+        String base = dir.getCanonicalPath() + File.separator;
+        if (!file.getCanonicalPath().startsWith(base)) {
+            throw new IllegalArgumentException("Path leaves the backup directory: " + path);
+        }
+        return file;
+    }
+
+    static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[8192];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buf)) > 0) {
+                crc.update(buf, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static Properties readManifest(File file) {
+        Properties props = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to read backup manifest {}", file, e);
+            }
+        }
+        return props;
+    }
+
+    private static void writeManifest(File file, Properties props) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        replace(tmp, file);
+    }
+
+    private static void replace(File tmp, File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to replace " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    private static void delete(File file) {
+        if (!file.delete()) {
+            LOGGER.debug("Failed to delete {}", file);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package org.dsa.iot.sedona;
+
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of the loaded components of a server, by type and
+ * name. Entries only keep the parent of a component so renames and moves
+ * do not touch the entries below it, paths are resolved when searching.
+ * Children missing from the tree of a component once it is updated are
+ * dropped along with everything below them.
+ */
+public class ComponentIndex {
+
+    /**
+     * Default maximum amount of results of a search.
+     */
+    public static final int DEFAULT_LIMIT = 1000;
+
+    /**
+     * Guards against cycles while resolving paths of moved components.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Integer>> byType = new HashMap<>();
+    private final Map<String, Set<Integer>> byName = new HashMap<>();
+
+    /**
+     * Adds or updates a component.
+     *
+     * @param comp Loaded component.
+     */
+    public synchronized void put(SoxComponent comp) {
+        int[] children = comp.childrenIds();
+        Entry e = new Entry(comp.id(), comp.parentId(), comp.name(),
+                            comp.type.qname, children);
+        Entry prev = entries.put(e.id, e);
+        if (prev != null) {
+            unindex(prev);
+            Set<Integer> kept = new HashSet<>();
+            if (children != null) {
+                for (int id : children) {
+                    kept.add(id);
+                }
+            }
+            if (prev.children != null) {
+                for (int id : prev.children) {
+                    Entry child = entries.get(id);
+                    // A moved child may already belong to another parent
+                    if (!kept.contains(id) && child != null && child.parent == e.id) {
+                        remove(id);
+                    }
+                }
+            }
+        }
+        add(byType, e.type, e.id);
+        add(byName, e.name, e.id);
+    }
+
+    /**
+     * Removes a component and everything below it.
+     *
+     * @param id ID of the component.
+     */
+    public synchronized void remove(int id) {
+        Entry e = entries.remove(id);
+        if (e == null) {
+            return;
+        }
+        unindex(e);
+        if (e.children != null) {
+            for (int child : e.children) {
+                Entry c = entries.get(child);
+                if (c != null && c.parent == id) {
+                    remove(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param id ID of a component.
+     * @return IDs of the indexed components below the component.
+     */
+    public synchronized List<Integer> descendants(int id) {
+        List<Integer> ids = new ArrayList<>();
+        Entry e = entries.get(id);
+        if (e != null && e.children != null) {
+            for (int child : e.children) {
+                collect(child, id, ids, 0);
+            }
+        }
+        return ids;
+    }
+
+    private void collect(int id, int parent, List<Integer> ids, int depth) {
+        Entry e = entries.get(id);
+        if (e == null || e.parent != parent || depth >= MAX_DEPTH) {
+            return;
+        }
+        ids.add(id);
+        if (e.children != null) {
+            for (int child : e.children) {
+                collect(child, id, ids, depth + 1);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds components. Every criterion supports {@code *} and {@code ?}
+     * wildcards and is skipped when {@code null} or empty.
+     *
+     * @param type Qualified name of the type, e.g.
+     *             {@code control::NumericWritable}, or the name of the
+     *             type in any kit.
+     * @param name Name of the component.
+     * @param path Path of the component relative to the server,
+     *             starting with the app.
+     * @param limit Maximum amount of matches.
+     * @return Matches in no particular order.
+     */
+    public synchronized List<Match> find(String type, String name,
+                                         String path, int limit) {
+        Pattern typePattern = compile(type);
+        boolean qualified = type != null && type.contains("::");
+        Pattern namePattern = compile(name);
+        Pattern pathPattern = compile(path);
+
+        // Exact criteria narrow the candidates down with the index
+        Collection<Integer> candidates = entries.keySet();
+        if (qualified && !isGlob(type)) {
+            candidates = get(byType, type);
+        }
+        if (name != null && !name.isEmpty() && !isGlob(name)) {
+            Set<Integer> named = get(byName, name);
+            if (named.size() < candidates.size()) {
+                candidates = named;
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int id : candidates) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            Entry e = entries.get(id);
+            String t = qualified ? e.type : e.type.substring(e.type.indexOf(':') + 2);
+            if (typePattern != null && !typePattern.matcher(t).matches()) {
+                continue;
+            }
+            if (namePattern != null && !namePattern.matcher(e.name).matches()) {
+                continue;
+            }
+            String p = path(e);
+            if (p == null) {
+                continue;
+            }
+            if (pathPattern != null && !pathPattern.matcher(p).matches()) {
+                continue;
+            }
+            matches.add(new Match(id, p, e.type));
+        }
+        return matches;
+    }
+
+    /**
+     * @return Path of a component, or {@code null} if one of its
+     *         parents is not indexed.
+     */
+    private String path(Entry e) {
+        StringBuilder sb = new StringBuilder(e.name);
+        for (int i = 0; e.id != 0 && i < MAX_DEPTH; i++) {
+            e = entries.get(e.parent);
+            if (e == null) {
+                return null;
+            }
+            sb.insert(0, '/').insert(0, e.name);
+        }
+        return e.id == 0 ? sb.toString() : null;
+    }
+
+    private void unindex(Entry e) {
+        remove(byType, e.type, e.id);
+        remove(byName, e.name, e.id);
+    }
+
+    private static Set<Integer> get(Map<String, Set<Integer>> map, String key) {
+        Set<Integer> ids = map.get(key);
+        return ids == null ? Collections.<Integer>emptySet() : ids;
+    }
+
+    private static void add(Map<String, Set<Integer>> map, String key, int id) {
+        Set<Integer> ids = map.get(key);
+        if (ids == null) {
+            ids = new LinkedHashSet<>();
+            map.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void remove(Map<String, Set<Integer>> map, String key, int id) {
+        Set<Integer> ids = map.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    private static boolean isGlob(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0;
+    }
+
+    private static Pattern compile(String glob) {
+        if (glob == null || glob.isEmpty()) {
+            return null;
+        }
+        return Utils.glob(glob);
+    }
+
+    /**
+     * Component found by a search.
+     */
+    public static class Match {
+
+        private final int id;
+        private final String path;
+        private final String type;
+
+        Match(int id, String path, String type) {
+            this.id = id;
+            this.path = path;
+            this.type = type;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return Path relative to the server.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+
+    private static class Entry {
+
+        private final int id;
+        private final int parent;
+        private final String name;
+        private final String type;
+        private final int[] children;
+
+        Entry(int id, int parent, String name, String type, int[] children) {
+            this.id = id;
+            this.parent = parent;
+            this.name = name;
+            this.type = type;
+            this.children = children;
+        }
+    }
+}
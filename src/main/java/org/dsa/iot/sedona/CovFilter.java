@@ -0,0 +1,313 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import sedona.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change of value filtering of the slot values of a server. Settings
+ * can be set for the whole server or any node below it, the nearest
+ * node wins. Slots without settings fall back to their deadband facet.
+ */
+public class CovFilter {
+
+    /**
+     * Interval in milliseconds at which delayed values are published.
+     * The sweep only runs while a slot has a delayed value or a maximum
+     * interval.
+     */
+    private static final long SWEEP = 100;
+
+    private final Map<String, CovSettings> settings = new ConcurrentHashMap<>();
+    private final Set<State> tracked = Collections.newSetFromMap(
+            new ConcurrentHashMap<State, Boolean>());
+    private final Sedona sedona;
+    private final Node parent;
+
+    private volatile int generation;
+    private ScheduledFuture<?> future;
+    private boolean running;
+
+    public CovFilter(Sedona sedona, Node parent) {
+        this.sedona = sedona;
+        this.parent = parent;
+
+        Value v = parent.getRoConfig("cov");
+        JsonObject obj = v == null ? null : v.getMap();
+        if (obj != null) {
+            for (Map.Entry<String, Object> e : obj) {
+                JsonObject s = (JsonObject) e.getValue();
+                settings.put(e.getKey(), CovSettings.fromJson(s));
+            }
+        }
+    }
+
+    /**
+     * Sets or removes the settings of a node and everything below it.
+     *
+     * @param path Path relative to the server, empty for the server.
+     * @param s Settings, or {@code null} to remove them.
+     */
+    public synchronized void set(String path, CovSettings s) {
+        String key = normalize(path);
+        if (s == null) {
+            settings.remove(key);
+        } else {
+            settings.put(key, s);
+        }
+        generation++;
+
+        JsonObject obj = new JsonObject();
+        for (Map.Entry<String, CovSettings> e : settings.entrySet()) {
+            obj.put(e.getKey(), e.getValue().toJson());
+        }
+        parent.setRoConfig("cov", new Value(obj));
+    }
+
+    /**
+     * Decides whether a new value of a slot is published now. Values
+     * held back by the minimum interval are published later.
+     *
+     * @param state State of the slot.
+     * @param val New value.
+     * @return Whether the value must be published.
+     */
+    public boolean accept(State state, sedona.Value val) {
+        long now = System.currentTimeMillis();
+        synchronized (state) {
+            if (state.generation != generation) {
+                state.generation = generation;
+                state.settings = resolve(state);
+                if (state.settings.getMaxInterval() > 0) {
+                    track(state);
+                }
+            }
+
+            sedona.Value last = state.published;
+            if (val != null && (val == last || val.equals(last))) {
+                state.pending = null;
+                return false;
+            }
+
+            CovSettings s = state.settings;
+            if (s.isActive() && last != null && val != null) {
+                if (state.numeric
+                        && isNumeric(val.typeId())
+                        && isNumeric(last.typeId())
+                        && s.isWithinDeadband(toDouble(last), toDouble(val))) {
+                    state.pending = null;
+                    return false;
+                }
+                if (now - state.time < s.getMinInterval()) {
+                    state.pending = val;
+                    track(state);
+                    return false;
+                }
+            }
+
+            state.published = val;
+            state.pending = null;
+            state.time = now;
+            return true;
+        }
+    }
+
+    /**
+     * Forgets the last published value of a slot after it was written, so
+     * the next value of the server is published even if it equals the
+     * value published before the write.
+     *
+     * @param node Node of the slot.
+     */
+    public void invalidate(Node node) {
+        Object meta = node.getMetaData();
+        if (meta instanceof State) {
+            State state = (State) meta;
+            synchronized (state) {
+                state.published = null;
+            }
+        }
+    }
+
+    public synchronized void start() {
+        running = true;
+        if (future == null && !tracked.isEmpty()) {
+            schedule();
+        }
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        tracked.clear();
+    }
+
+    /**
+     * Adds a slot to the sweep, starting the sweep if it is idle.
+     */
+    private void track(State state) {
+        tracked.add(state);
+        synchronized (this) {
+            if (running && future == null) {
+                schedule();
+            }
+        }
+    }
+
+    private void schedule() {
+        future = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } finally {
+                    synchronized (CovFilter.this) {
+                        // A slot tracked after this check schedules again
+                        if (running && !tracked.isEmpty()) {
+                            schedule();
+                        } else {
+                            future = null;
+                        }
+                    }
+                }
+            }
+        }, SWEEP, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publishes values held back by the minimum interval and republishes
+     * values that reached their maximum interval.
+     */
+    private void sweep() {
+        if (tracked.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<State> states = new ArrayList<>(tracked);
+        for (State state : states) {
+            Node node = state.node;
+            Node p = node.getParent();
+            if (p == null || p.getChild(node.getName()) != node) {
+                tracked.remove(state);
+                continue;
+            }
+
+            sedona.Value publish = null;
+            synchronized (state) {
+                CovSettings s = state.settings;
+                long elapsed = now - state.time;
+                if (state.pending != null && elapsed >= s.getMinInterval()) {
+                    publish = state.pending;
+                    state.published = publish;
+                    state.pending = null;
+                    state.time = now;
+                } else if (s.getMaxInterval() > 0
+                        && state.published != null
+                        && elapsed >= s.getMaxInterval()) {
+                    publish = state.published;
+                    state.time = now;
+                }
+                if (state.pending == null && s.getMaxInterval() <= 0) {
+                    tracked.remove(state);
+                }
+            }
+            if (publish != null) {
+                sedona.getSlotBinder().publish(node, state.info, publish);
+            }
+        }
+    }
+
+    private CovSettings resolve(State state) {
+        if ("meta".equals(state.info.getName())) {
+            return CovSettings.NONE;
+        }
+        String path = state.node.getPath();
+        String root = parent.getPath();
+        if (path.startsWith(root)) {
+            path = path.substring(root.length());
+            while (true) {
+                CovSettings s = settings.get(path);
+                if (s != null) {
+                    return s;
+                }
+                if (path.isEmpty()) {
+                    break;
+                }
+                path = path.substring(0, path.lastIndexOf('/'));
+            }
+        }
+        return state.info.getCovSettings();
+    }
+
+    static String normalize(String path) {
+        if (path == null) {
+            return "";
+        }
+        path = path.trim();
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path.isEmpty() ? "" : "/" + path;
+    }
+
+    static boolean isNumeric(int typeId) {
+        return typeId >= Type.byteId && typeId <= Type.doubleId;
+    }
+
+    static double toDouble(sedona.Value val) {
+        switch (val.typeId()) {
+            case Type.byteId:
+                return ((sedona.Byte) val).val;
+            case Type.shortId:
+                return ((sedona.Short) val).val;
+            case Type.intId:
+                return ((sedona.Int) val).val;
+            case Type.longId:
+                return ((sedona.Long) val).val;
+            case Type.floatId:
+                return ((sedona.Float) val).val;
+            case Type.doubleId:
+                return ((sedona.Double) val).val;
+            default:
+                throw new IllegalArgumentException("Not numeric: " + val);
+        }
+    }
+
+    /**
+     * Filter state of a slot node, kept as the metadata of the node.
+     */
+    public static class State {
+
+        private final Node node;
+        private final SlotInfo info;
+        private final boolean numeric;
+
+        private CovSettings settings;
+        private sedona.Value published;
+        private sedona.Value pending;
+        private int generation = -1;
+        private long time;
+
+        public State(Node node, SlotInfo info) {
+            this.node = node;
+            this.info = info;
+            this.numeric = isNumeric(info.getTypeId()) && !info.isEnum();
+        }
+    }
+}
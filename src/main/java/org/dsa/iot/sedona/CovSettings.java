@@ -0,0 +1,112 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.util.json.JsonObject;
+import sedona.Facets;
+
+/**
+ * Change of value filter settings of a slot. Instances are immutable.
+ */
+public class CovSettings {
+
+    /**
+     * Settings that publish every change.
+     */
+    public static final CovSettings NONE = new CovSettings(0, false, 0, 0);
+
+    /**
+     * Name of the slot facet holding the default absolute deadband.
+     */
+    public static final String DEADBAND_FACET = "deadband";
+
+    private final double deadband;
+    private final boolean percent;
+    private final long minInterval;
+    private final long maxInterval;
+
+    /**
+     * @param deadband Minimum change of a numeric value to publish it.
+     * @param percent Whether the deadband is a percentage of the last
+     *                published value.
+     * @param minInterval Minimum time in milliseconds between updates.
+     * @param maxInterval Time in milliseconds after which the last value
+     *                    is published again, or 0 to disable.
+     */
+    public CovSettings(double deadband, boolean percent,
+                       long minInterval, long maxInterval) {
+        this.deadband = Math.max(deadband, 0);
+        this.percent = percent;
+        this.minInterval = Math.max(minInterval, 0);
+        this.maxInterval = Math.max(maxInterval, 0);
+    }
+
+    public double getDeadband() {
+        return deadband;
+    }
+
+    public boolean isPercent() {
+        return percent;
+    }
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    public long getMaxInterval() {
+        return maxInterval;
+    }
+
+    /**
+     * @return Whether the settings filter anything.
+     */
+    public boolean isActive() {
+        return deadband > 0 || minInterval > 0 || maxInterval > 0;
+    }
+
+    /**
+     * @param last Last published value.
+     * @param value New value.
+     * @return Whether the change is within the deadband.
+     */
+    public boolean isWithinDeadband(double last, double value) {
+        if (deadband <= 0) {
+            return false;
+        }
+        double band = percent ? Math.abs(last) * deadband / 100 : deadband;
+        return Math.abs(value - last) <= band;
+    }
+
+    public JsonObject toJson() {
+        JsonObject obj = new JsonObject();
+        obj.put("deadband", deadband);
+        obj.put("percent", percent);
+        obj.put("minInterval", minInterval);
+        obj.put("maxInterval", maxInterval);
+        return obj;
+    }
+
+    public static CovSettings fromJson(JsonObject obj) {
+        Number deadband = obj.get("deadband");
+        Boolean percent = obj.get("percent");
+        Number min = obj.get("minInterval");
+        Number max = obj.get("maxInterval");
+        return new CovSettings(deadband == null ? 0 : deadband.doubleValue(),
+                               percent != null && percent,
+                               min == null ? 0 : min.longValue(),
+                               max == null ? 0 : max.longValue());
+    }
+
+    /**
+     * @param facets Facets of a slot, can be {@code null}.
+     * @return Settings with the deadband of the facets, or {@link #NONE}.
+     */
+    public static CovSettings fromFacets(Facets facets) {
+        if (facets == null) {
+            return NONE;
+        }
+        sedona.Value v = facets.get(DEADBAND_FACET);
+        if (v == null || !CovFilter.isNumeric(v.typeId())) {
+            return NONE;
+        }
+        return new CovSettings(CovFilter.toDouble(v), false, 0, 0);
+    }
+}
@@ -0,0 +1,245 @@
+package org.dsa.iot.sedona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.dasp.DaspSession;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the DASP options of the sessions of a server. In adaptive mode
+ * the round trip time and loss of the current session are sampled. The
+ * retry time follows the round trip time and the packet size shrinks on
+ * lossy links. Both are passed as options of a new session, since a
+ * session has no public API to change them once it is open. Once they
+ * drifted far enough from the values of the current session, and the
+ * session is old enough, the server reconnects to apply them.
+ */
+public class DaspTuner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaspTuner.class);
+
+    /**
+     * Interval in milliseconds at which the session is sampled.
+     */
+    private static final long SAMPLE = 5000;
+
+    private static final long MIN_RETRY = 200;
+    private static final long MAX_RETRY = 10000;
+
+    /**
+     * Retry time as a multiple of the median acknowledgement time.
+     */
+    private static final int RETRY_FACTOR = 3;
+
+    private static final int MIN_PACKET = 128;
+    private static final int MAX_PACKET = 512;
+
+    /**
+     * Minimum amount of packets sent in a sample to estimate the loss.
+     */
+    private static final int MIN_SAMPLE = 20;
+
+    private static final double HIGH_LOSS = 0.1;
+    private static final double LOW_LOSS = 0.01;
+
+    /**
+     * Send retry time and packet size of a session without the options.
+     */
+    private static final long DEFAULT_RETRY = 1000;
+    private static final int DEFAULT_PACKET = 512;
+
+    /**
+     * Factor between the tuned and the current retry time that is worth
+     * a new session.
+     */
+    private static final int RESTART_DRIFT = 2;
+
+    /**
+     * Minimum age in milliseconds of a session before it is restarted,
+     * which also limits how often a server reconnects.
+     */
+    private static final long RESTART_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    private final Sedona sedona;
+
+    private volatile DaspTuning tuning;
+    private volatile long sendRetry;
+    private volatile int idealMax;
+    private volatile long appliedRetry = DEFAULT_RETRY;
+    private volatile int appliedMax = DEFAULT_PACKET;
+
+    private DaspSession session;
+    private long started;
+    private ScheduledFuture<?> future;
+    private double loss;
+    private int lastSent;
+    private int lastRetries;
+
+    public DaspTuner(Sedona sedona, DaspTuning tuning) {
+        this.sedona = sedona;
+        this.tuning = tuning;
+    }
+
+    public DaspTuning getTuning() {
+        return tuning;
+    }
+
+    /**
+     * Replaces the settings. They apply to the next session.
+     *
+     * @param tuning New settings.
+     */
+    public synchronized void setTuning(DaspTuning tuning) {
+        this.tuning = tuning;
+        sendRetry = 0;
+        idealMax = 0;
+    }
+
+    /**
+     * @return Options of a new session.
+     */
+    public Hashtable<Object, Object> options() {
+        DaspTuning t = tuning;
+        Hashtable<Object, Object> options;
+        if (!t.isAdaptive()) {
+            options = t.toOptions(0, 0);
+        } else {
+            options = t.toOptions(idealMax, sendRetry);
+        }
+        // What was asked for, the session may agree on smaller packets
+        Object retry = options.get("dasp.sendRetry");
+        appliedRetry = retry != null ? Long.parseLong((String) retry) : DEFAULT_RETRY;
+        Object max = options.get("dasp.idealMax");
+        appliedMax = max != null ? Integer.parseInt((String) max) : DEFAULT_PACKET;
+        return options;
+    }
+
+    /**
+     * Starts sampling a new session in adaptive mode.
+     *
+     * @param session Session of the server.
+     */
+    public synchronized void start(DaspSession session) {
+        stop();
+        if (!tuning.isAdaptive() || session == null) {
+            return;
+        }
+        this.session = session;
+        started = System.currentTimeMillis();
+        lastSent = session.numSent();
+        lastRetries = session.numRetries();
+        if (idealMax == 0) {
+            idealMax = appliedMax;
+        }
+        schedule();
+    }
+
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        session = null;
+    }
+
+    private void schedule() {
+        final DaspSession s = session;
+        future = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DaspTuner.this) {
+                    if (session != s || s.isClosed()) {
+                        return;
+                    }
+                    sample(s);
+                    if (!isDrifted()) {
+                        schedule();
+                        return;
+                    }
+                    LOGGER.info("Restarting session of '{}' with a send retry of {}ms and packets of {} bytes",
+                            sedona.getName(), sendRetry, idealMax);
+                    future = null;
+                    session = null;
+                }
+                // Outside the lock, the server stops the tuner while locked
+                sedona.reconnect();
+            }
+        }, SAMPLE, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample(DaspSession s) {
+        long median = medianAckTime(s.ackTimes());
+        if (median >= 0) {
+            long target = median * RETRY_FACTOR;
+            target = Math.max(MIN_RETRY, Math.min(MAX_RETRY, target));
+            long retry = sendRetry == 0 ? target : (sendRetry * 3 + target) / 4;
+            if (retry != sendRetry) {
+                LOGGER.debug("Send retry of the next session set to {}ms", retry);
+            }
+            sendRetry = retry;
+        }
+
+        int sent = s.numSent();
+        int retries = s.numRetries();
+        int sentDelta = sent - lastSent;
+        if (sentDelta >= MIN_SAMPLE) {
+            double rate = (double) (retries - lastRetries) / sentDelta;
+            loss = (loss + rate) / 2;
+            lastSent = sent;
+            lastRetries = retries;
+
+            int max = tuning.getIdealMax() > 0 ? tuning.getIdealMax() : MAX_PACKET;
+            int size = idealMax;
+            if (loss > HIGH_LOSS) {
+                size = Math.max(MIN_PACKET, size / 2);
+            } else if (loss < LOW_LOSS) {
+                size = Math.min(max, size * 2);
+            }
+            if (size != idealMax) {
+                LOGGER.info("Packet size of the next session set to {} bytes (loss {}%)",
+                        size, Math.round(loss * 100));
+                idealMax = size;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the tuned values differ enough from those of the
+     *         current session to open a new one.
+     */
+    private boolean isDrifted() {
+        if (System.currentTimeMillis() - started < RESTART_AGE) {
+            return false;
+        }
+        if (idealMax > 0 && idealMax != appliedMax) {
+            return true;
+        }
+        long retry = sendRetry;
+        long applied = appliedRetry;
+        return retry > 0 && applied > 0
+                && (retry >= applied * RESTART_DRIFT || applied >= retry * RESTART_DRIFT);
+    }
+
+    /**
+     * @param times Recent acknowledgement times of a session, negative
+     *              for unused entries.
+     * @return Median of the times, or {@code -1} without enough samples.
+     */
+    static long medianAckTime(int[] times) {
+        int[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        int start = 0;
+        while (start < sorted.length && sorted[start] < 0) {
+            start++;
+        }
+        int count = sorted.length - start;
+        if (count < 5) {
+            return -1;
+        }
+        return sorted[start + count / 2];
+    }
+}
@@ -0,0 +1,140 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.Value;
+
+import java.util.Hashtable;
+
+/**
+ * DASP settings of a server. Settings that are not configured fall back
+ * to their system property, then to {@code sedona.properties}. Instances
+ * are immutable.
+ */
+public class DaspTuning {
+
+    public static final String IDEAL_MAX = "daspIdealMax";
+    public static final String RECEIVE_TIMEOUT = "daspReceiveTimeout";
+    public static final String CONNECT_TIMEOUT = "daspConnectTimeout";
+    public static final String SEND_RETRY = "daspSendRetry";
+    public static final String ADAPTIVE = "daspAdaptive";
+
+    /**
+     * Names of the settings as server configs.
+     */
+    public static final String[] CONFIGS = {
+            IDEAL_MAX, RECEIVE_TIMEOUT, CONNECT_TIMEOUT, SEND_RETRY, ADAPTIVE
+    };
+
+    private final int idealMax;
+    private final long receiveTimeout;
+    private final long connectTimeout;
+    private final long sendRetry;
+    private final boolean adaptive;
+
+    /**
+     * @param idealMax Ideal packet size in bytes.
+     * @param receiveTimeout Time in milliseconds without receiving
+     *                       anything before the session is closed.
+     * @param connectTimeout Time in milliseconds to wait for a session.
+     * @param sendRetry Time in milliseconds before an unacknowledged
+     *                  packet is sent again.
+     * @param adaptive Whether the retry time and packet size adapt to
+     *                 the measured round trip time and loss.
+     */
+    public DaspTuning(int idealMax, long receiveTimeout, long connectTimeout,
+                      long sendRetry, boolean adaptive) {
+        this.idealMax = Math.max(idealMax, 0);
+        this.receiveTimeout = Math.max(receiveTimeout, 0);
+        this.connectTimeout = Math.max(connectTimeout, 0);
+        this.sendRetry = Math.max(sendRetry, 0);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @return Ideal packet size, or {@code 0} for the default.
+     */
+    public int getIdealMax() {
+        return idealMax;
+    }
+
+    /**
+     * @return Receive timeout, or {@code 0} for the default.
+     */
+    public long getReceiveTimeout() {
+        return receiveTimeout;
+    }
+
+    /**
+     * @return Connect timeout, or {@code 0} for the default.
+     */
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @return Send retry time, or {@code 0} for the default.
+     */
+    public long getSendRetry() {
+        return sendRetry;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Builds the options of a new session.
+     *
+     * @param idealMax Packet size overriding the configured one, or
+     *                 {@code 0}.
+     * @param sendRetry Retry time overriding the configured one, or
+     *                  {@code 0}.
+     * @return Options for {@code SoxClient.connect}, only holding the
+     *         settings of this class as strings.
+     */
+    public Hashtable<Object, Object> toOptions(int idealMax, long sendRetry) {
+        Hashtable<Object, Object> options = new Hashtable<>();
+        put(options, "dasp.idealMax", idealMax > 0 ? idealMax : this.idealMax);
+        put(options, "dasp.receiveTimeout", receiveTimeout);
+        put(options, "dasp.connectTimeout", connectTimeout);
+        put(options, "dasp.sendRetry", sendRetry > 0 ? sendRetry : this.sendRetry);
+        return options;
+    }
+
+    private static void put(Hashtable<Object, Object> options,
+                            String name, long value) {
+        if (value > 0) {
+            options.put(name, String.valueOf(value));
+            return;
+        }
+        // The session only reads sedona.properties by itself
+        String prop = System.getProperty(name);
+        if (prop != null && !prop.trim().isEmpty()) {
+            options.put(name, prop.trim());
+        }
+    }
+
+    /**
+     * Reads the settings of a server node.
+     *
+     * @param node Node of the server.
+     * @return Settings of the server.
+     */
+    public static DaspTuning fromNode(Node node) {
+        Value adaptive = node.getRoConfig(ADAPTIVE);
+        return new DaspTuning((int) getLong(node, IDEAL_MAX),
+                              getLong(node, RECEIVE_TIMEOUT),
+                              getLong(node, CONNECT_TIMEOUT),
+                              getLong(node, SEND_RETRY),
+                              adaptive != null && adaptive.getBool() != null
+                                      && adaptive.getBool());
+    }
+
+    private static long getLong(Node node, String name) {
+        Value v = node.getRoConfig(name);
+        if (v == null || v.getNumber() == null) {
+            return 0;
+        }
+        return v.getNumber().longValue();
+    }
+}
@@ -0,0 +1,321 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.actions.table.Row;
+import org.dsa.iot.dslink.node.actions.table.Table;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Slot;
+import sedona.Type;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Writes or invokes the slots matching a path pattern on every server in
+ * parallel. The pattern starts with the server name followed by the
+ * component names and the slot name, each of them can use {@code *} and
+ * {@code ?} wildcards. The slots of a server are handled in order while
+ * servers run concurrently up to a limit. Writes are queued on the write
+ * queue of the server and awaited, actions are invoked directly. Every
+ * server reports a single row once its slots were written or once its
+ * timeout elapsed, which stops the server before its next slot without
+ * interrupting a request in flight.
+ */
+public class FleetCommand {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetCommand.class);
+
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    /**
+     * Default time in seconds a server may take.
+     */
+    public static final int DEFAULT_TIMEOUT = 10;
+
+    private final Node superRoot;
+    private final Pattern[] segments;
+    private final String value;
+    private final int concurrency;
+    private final long timeout;
+
+    /**
+     * @param superRoot Node holding the servers.
+     * @param pattern Path pattern of the slots.
+     * @param value Value to write or to invoke the actions with, can be
+     *              {@code null} for actions without argument.
+     * @param concurrency Maximum amount of servers handled at once.
+     * @param timeout Time in milliseconds a server may take.
+     */
+    public FleetCommand(Node superRoot, String pattern, String value,
+                        int concurrency, long timeout) {
+        String[] split = pattern.replaceAll("^/+|/+$", "").split("/+");
+        if (split.length < 3) {
+            throw new IllegalArgumentException("Pattern needs a server, component and slot: " + pattern);
+        }
+        this.superRoot = superRoot;
+        this.segments = new Pattern[split.length];
+        for (int i = 0; i < split.length; i++) {
+            segments[i] = Utils.glob(split[i]);
+        }
+        this.value = value;
+        this.concurrency = Math.max(concurrency, 1);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the command, streaming a row per server into the table. The
+     * table is closed once every server reported.
+     *
+     * @param table Table of the results.
+     */
+    public void run(final Table table) {
+        List<Sedona> servers = new ArrayList<>();
+        Map<String, Node> children = superRoot.getChildren();
+        if (children != null) {
+            for (Node child : children.values()) {
+                if (Sedona.isServer(child)
+                        && segments[0].matcher(child.getName()).matches()
+                        && child.getMetaData() instanceof Sedona) {
+                    servers.add((Sedona) child.getMetaData());
+                }
+            }
+        }
+        if (servers.isEmpty()) {
+            table.close();
+            return;
+        }
+
+        int limit = Math.min(concurrency, servers.size());
+        ExecutorService pool = Executors.newFixedThreadPool(limit,
+                ServerExecutor.newThreadFactory("sedona-fleet"));
+        final AtomicInteger remaining = new AtomicInteger(servers.size());
+        for (final Sedona sedona : servers) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(sedona, table, remaining);
+                }
+            });
+        }
+        pool.shutdown();
+    }
+
+    private void execute(final Sedona sedona, final Table table,
+                         final AtomicInteger remaining) {
+        final String name = sedona.getName();
+        final long start = System.nanoTime();
+        final AtomicBoolean reported = new AtomicBoolean();
+        final AtomicInteger done = new AtomicInteger();
+        ScheduledFuture<?> timer = Objects.getDaemonThreadPool().schedule(new Runnable() {
+            @Override
+            public void run() {
+                // The server stops before its next slot, a request in
+                // flight is left to finish so the session stays usable
+                if (reported.compareAndSet(false, true)) {
+                    report(table, remaining, name, "timeout", done.get(), start, null);
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        String status;
+        String error = null;
+        try {
+            status = applyAll(sedona, start, reported, done);
+        } catch (Exception e) {
+            LOGGER.warn("Fleet command failed on '{}'", name, e);
+            status = "error";
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        timer.cancel(false);
+        if (reported.compareAndSet(false, true)) {
+            report(table, remaining, name, status, done.get(), start, error);
+        }
+    }
+
+    /**
+     * Applies the matching slots of a server until the timeout reported
+     * the server.
+     *
+     * @return Status of the server.
+     */
+    private String applyAll(Sedona sedona, long start, AtomicBoolean reported,
+                            AtomicInteger done) throws Exception {
+        SoxClient client = sedona.getClient();
+        if (client == null) {
+            throw new IllegalStateException("Not connected");
+        }
+        List<Target> targets = resolve(client);
+        if (targets.isEmpty()) {
+            return "no match";
+        }
+        List<Future<Void>> writes = new ArrayList<>();
+        for (Target t : targets) {
+            if (reported.get()) {
+                return "timeout";
+            }
+            Future<Void> write = apply(sedona, client, t);
+            if (write != null) {
+                writes.add(write);
+            } else {
+                done.incrementAndGet();
+            }
+        }
+        // Slots only count once the server accepted their write
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Exception error = null;
+        for (Future<Void> write : writes) {
+            try {
+                write.get(Math.max(deadline - System.nanoTime(), 0),
+                          TimeUnit.NANOSECONDS);
+                done.incrementAndGet();
+            } catch (TimeoutException | CancellationException e) {
+                return "timeout";
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = (Exception) e.getCause();
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return "ok";
+    }
+
+    /**
+     * Finds the slots of a server matching the pattern. Only components
+     * cached by the client are searched so resolving costs no requests,
+     * in lazy mode components the link has not loaded are not matched.
+     */
+    private List<Target> resolve(SoxClient client) {
+        List<SoxComponent> comps = new ArrayList<>();
+        SoxComponent app = client.cache(0);
+        if (app != null && segments[1].matcher(app.name()).matches()) {
+            comps.add(app);
+        }
+        int last = segments.length - 1;
+        for (int i = 2; i < last && !comps.isEmpty(); i++) {
+            List<SoxComponent> next = new ArrayList<>();
+            for (SoxComponent c : comps) {
+                for (int id : c.childrenIds()) {
+                    SoxComponent child = client.cache(id);
+                    if (child != null && segments[i].matcher(child.name()).matches()) {
+                        next.add(child);
+                    }
+                }
+            }
+            comps = next;
+        }
+
+        List<Target> targets = new ArrayList<>();
+        for (SoxComponent c : comps) {
+            for (SlotInfo info : TypeCache.getSlots(c.type)) {
+                if (segments[last].matcher(info.getName()).matches()
+                        && (info.isAction() || info.isWritable())) {
+                    targets.add(new Target(c, info));
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Invokes an action or queues a write. Writes go through the write
+     * queue of the server so they are coalesced with the other writes to
+     * the slot.
+     *
+     * @return Future of a queued write, or {@code null} for an action.
+     */
+    private Future<Void> apply(Sedona sedona, SoxClient client, Target t)
+                                                    throws Exception {
+        Slot slot = t.info.getSlot();
+        sedona.Value val = parse(t.info, value);
+        if (t.info.isAction()) {
+            long start = System.nanoTime();
+            client.invoke(t.comp, slot, val);
+            sedona.getMetrics().record(Metrics.Op.INVOKE, start);
+            return null;
+        } else {
+            if (val == null) {
+                throw new IllegalArgumentException("No value for " + slot.name);
+            }
+            Node node = sedona.getComponentNode(t.comp.id());
+            if (node != null) {
+                node = node.getChild(t.info.getName());
+            }
+            Future<Void> write = sedona.getWriteQueue().enqueue(t.comp, t.info, val, node);
+            if (write == null) {
+                throw new IllegalStateException("Write queue full");
+            }
+            return write;
+        }
+    }
+
+    private static void report(Table table, AtomicInteger remaining,
+                               String server, String status, int slots,
+                               long start, String error) {
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Row row = Row.make(new Value(server),
+                           new Value(status),
+                           new Value(slots),
+                           new Value(latency),
+                           new Value(error));
+        synchronized (table) {
+            table.addRow(row);
+            if (remaining.decrementAndGet() == 0) {
+                table.close();
+            }
+        }
+    }
+
+    /**
+     * Parses the value of a slot from text.
+     *
+     * @return Parsed value, or {@code null} without a value or for
+     *         actions without argument.
+     */
+    static sedona.Value parse(SlotInfo info, String text) {
+        int typeId = info.getTypeId();
+        if (text == null || text.isEmpty() || typeId == Type.voidId) {
+            return null;
+        }
+        if (info.getSlot().isAsStr()) {
+            return sedona.Str.make(text);
+        }
+        if (info.isEnum()) {
+            Integer i = info.getEnums().get(text);
+            if (i != null) {
+                return sedona.Byte.make(i);
+            }
+        }
+        return sedona.Value.defaultForType(typeId).decodeString(text);
+    }
+
+    private static class Target {
+
+        private final SoxComponent comp;
+        private final SlotInfo info;
+
+        Target(SoxComponent comp, SlotInfo info) {
+            this.comp = comp;
+            this.info = info;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.dsa.iot.sedona;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with log-linear buckets. Every power of two
+ * is split into four buckets which bounds the error of a percentile to
+ * 25% while recording only costs a couple of atomic increments.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXP = 40;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXP - 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos Latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(index(nanos / 1000));
+    }
+
+    /**
+     * @return Copy of the bucket counts.
+     */
+    public long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @param counts Bucket counts.
+     * @return Amount of recorded latencies.
+     */
+    public static long count(long[] counts) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Computes a percentile from bucket counts.
+     *
+     * @param counts Bucket counts, as returned by {@link #snapshot()}.
+     * @param p Percentile between 0 and 1.
+     * @return Upper bound of the percentile in milliseconds, or 0 if
+     *         nothing was recorded.
+     */
+    public static double percentile(long[] counts, double p) {
+        long total = count(counts);
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(p * total);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return upperBound(i) / 1000.0;
+            }
+        }
+        return upperBound(counts.length - 1) / 1000.0;
+    }
+
+    /**
+     * @param a Newer bucket counts.
+     * @param b Older bucket counts.
+     * @return Counts recorded between both snapshots.
+     */
+    public static long[] diff(long[] a, long[] b) {
+        long[] d = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            d[i] = a[i] - b[i];
+        }
+        return d;
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return micros < 0 ? 0 : (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        if (exp >= MAX_EXP) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >> (exp - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exp - 2) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        int exp = (index - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exp - 2);
+    }
+}
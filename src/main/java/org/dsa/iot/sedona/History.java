@@ -0,0 +1,264 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Type;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory history of the numeric and bool slots of a server. Every
+ * slot gets a {@link HistoryBuffer} holding up to the configured depth of
+ * changes. The buffers of a server share a memory budget, once it is used
+ * up buffers stop growing and wrap around earlier.
+ */
+public class History {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(History.class);
+
+    /**
+     * Default amount of records kept per slot, {@code 0} disables the
+     * history.
+     */
+    public static final int DEFAULT_DEPTH = 0;
+
+    /**
+     * Default memory budget of a server in megabytes.
+     */
+    public static final int DEFAULT_MEMORY = 8;
+
+    private static final String TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+    private final ConcurrentHashMap<String, HistoryBuffer> buffers = new ConcurrentHashMap<>();
+    private final AtomicLong used = new AtomicLong();
+    private final String name;
+    private final int depth;
+    private final long limit;
+
+    private volatile boolean full;
+
+    /**
+     * @param name Name of the server.
+     * @param depth Amount of records kept per slot.
+     * @param memory Memory budget in megabytes.
+     */
+    public History(String name, int depth, int memory) {
+        this.name = name;
+        this.depth = Math.max(depth, 0);
+        this.limit = Math.max(memory, 0) * 1024L * 1024L;
+    }
+
+    /**
+     * @return Whether values are recorded.
+     */
+    public boolean isEnabled() {
+        return depth > 0;
+    }
+
+    /**
+     * @param info Slot to check.
+     * @return Whether the values of the slot can be recorded.
+     */
+    public static boolean isSupported(SlotInfo info) {
+        int id = info.getTypeId();
+        return !info.isAction()
+                && !"meta".equals(info.getName())
+                && (id == Type.boolId || CovFilter.isNumeric(id));
+    }
+
+    /**
+     * Records a new value of a slot.
+     *
+     * @param node Node of the slot.
+     * @param info Slot of the value.
+     * @param val New value, can be {@code null}.
+     */
+    public void record(Node node, SlotInfo info, sedona.Value val) {
+        if (val == null || !isSupported(info)) {
+            return;
+        }
+        String path = node.getPath();
+        HistoryBuffer buffer = buffers.get(path);
+        if (buffer == null) {
+            int cap = Math.min(HistoryBuffer.INITIAL, depth);
+            long bytes = (long) cap * HistoryBuffer.RECORD_BYTES;
+            if (!reserve(bytes)) {
+                return;
+            }
+            buffer = new HistoryBuffer(this, depth, cap);
+            HistoryBuffer prev = buffers.putIfAbsent(path, buffer);
+            if (prev != null) {
+                release(bytes);
+                buffer = prev;
+            }
+        }
+        buffer.add(System.currentTimeMillis(), toDouble(val));
+    }
+
+    /**
+     * @param path Path of a slot node.
+     * @return Buffer of the slot, or {@code null} if nothing was recorded.
+     */
+    public HistoryBuffer get(String path) {
+        return buffers.get(path);
+    }
+
+    /**
+     * Drops the history of a node and everything below it.
+     *
+     * @param path Path of the node.
+     */
+    public void remove(String path) {
+        String prefix = path + "/";
+        Iterator<Map.Entry<String, HistoryBuffer>> it = buffers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, HistoryBuffer> e = it.next();
+            String key = e.getKey();
+            if (key.equals(path) || key.startsWith(prefix)) {
+                it.remove();
+                release(e.getValue().getBytes());
+            }
+        }
+    }
+
+    /**
+     * @return Bytes allocated by the buffers.
+     */
+    public long getUsedBytes() {
+        return used.get();
+    }
+
+    /**
+     * Takes bytes from the memory budget.
+     *
+     * @param bytes Bytes to allocate.
+     * @return Whether the budget allows the allocation.
+     */
+    boolean reserve(long bytes) {
+        while (true) {
+            long cur = used.get();
+            if (cur + bytes > limit) {
+                if (!full) {
+                    full = true;
+                    LOGGER.warn("History memory of '{}' is used up", name);
+                }
+                return false;
+            }
+            if (used.compareAndSet(cur, cur + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(long bytes) {
+        used.addAndGet(-bytes);
+        full = false;
+    }
+
+    /**
+     * Rolls up records into intervals. The time of every interval is its
+     * start and intervals without records are skipped.
+     *
+     * @param records Records to roll up.
+     * @param interval Interval in milliseconds.
+     * @param rollup Function applied to the values of an interval.
+     * @return Rolled up records.
+     */
+    public static HistoryBuffer.Records rollup(HistoryBuffer.Records records,
+                                               long interval,
+                                               Rollup rollup) {
+        int size = records.size();
+        long[] times = new long[size];
+        double[] values = new double[size];
+        int n = 0;
+
+        int i = 0;
+        while (i < size) {
+            long start = records.times[i] - (records.times[i] % interval);
+            long end = start + interval;
+            double min = records.values[i];
+            double max = min;
+            double sum = 0;
+            int count = 0;
+            while (i < size && records.times[i] >= start && records.times[i] < end) {
+                double v = records.values[i];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+                count++;
+                i++;
+            }
+
+            times[n] = start;
+            switch (rollup) {
+                case MIN:
+                    values[n] = min;
+                    break;
+                case MAX:
+                    values[n] = max;
+                    break;
+                default:
+                    values[n] = sum / count;
+            }
+            n++;
+        }
+
+        HistoryBuffer.Records result = new HistoryBuffer.Records(n);
+        System.arraycopy(times, 0, result.times, 0, n);
+        System.arraycopy(values, 0, result.values, 0, n);
+        return result;
+    }
+
+    static double toDouble(sedona.Value val) {
+        if (val.typeId() == Type.boolId) {
+            return ((sedona.Bool) val).val ? 1 : 0;
+        }
+        return CovFilter.toDouble(val);
+    }
+
+    /**
+     * Converts a recorded value back to a value of the slot type.
+     */
+    static sedona.Value toSedona(int typeId, double value) {
+        switch (typeId) {
+            case Type.boolId:
+                return sedona.Bool.make(value != 0);
+            case Type.byteId:
+                return sedona.Byte.make((int) value);
+            case Type.shortId:
+                return sedona.Short.make((int) value);
+            case Type.intId:
+                return sedona.Int.make((int) value);
+            case Type.longId:
+                return sedona.Long.make((long) value);
+            case Type.floatId:
+                return sedona.Float.make((float) value);
+            default:
+                return sedona.Double.make(value);
+        }
+    }
+
+    static String formatTime(long time) {
+        return new SimpleDateFormat(TIME_FORMAT).format(new Date(time));
+    }
+
+    static long parseTime(String time) throws ParseException {
+        return new SimpleDateFormat(TIME_FORMAT).parse(time).getTime();
+    }
+
+    /**
+     * Function applied to the values of an interval.
+     */
+    public enum Rollup {
+        AVG,
+        MIN,
+        MAX
+    }
+}
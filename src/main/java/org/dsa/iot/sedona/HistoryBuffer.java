@@ -0,0 +1,140 @@
+package org.dsa.iot.sedona;
+
+/**
+ * Ring buffer of the recorded values of a slot. Times and values are
+ * kept in primitive arrays which grow up to the depth of the history as
+ * long as its memory budget allows it. Once full the oldest records are
+ * overwritten.
+ */
+public class HistoryBuffer {
+
+    /**
+     * Bytes used by a record, a time and a value.
+     */
+    static final int RECORD_BYTES = 16;
+
+    /**
+     * Initial capacity of a buffer.
+     */
+    static final int INITIAL = 16;
+
+    private final History history;
+    private final int depth;
+
+    private long[] times;
+    private double[] values;
+    private int head;
+    private int size;
+
+    HistoryBuffer(History history, int depth, int capacity) {
+        this.history = history;
+        this.depth = depth;
+        this.times = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Records a value unless it equals the last recorded value.
+     *
+     * @param time Time in milliseconds.
+     * @param value Value to record.
+     */
+    public synchronized void add(long time, double value) {
+        int len = times.length;
+        if (size > 0) {
+            int last = (head + size - 1) % len;
+            if (Double.compare(values[last], value) == 0) {
+                return;
+            }
+        }
+        if (size == len && !grow()) {
+            times[head] = time;
+            values[head] = value;
+            head = (head + 1) % len;
+            return;
+        }
+        int i = (head + size) % times.length;
+        times[i] = time;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Copies the records within a time range.
+     *
+     * @param from Start of the range in milliseconds, inclusive.
+     * @param to End of the range in milliseconds, inclusive.
+     * @return Records of the range in recording order.
+     */
+    public synchronized Records read(long from, long to) {
+        int len = times.length;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long t = times[(head + i) % len];
+            if (t >= from && t <= to) {
+                count++;
+            }
+        }
+
+        Records records = new Records(count);
+        int n = 0;
+        for (int i = 0; i < size && n < count; i++) {
+            int idx = (head + i) % len;
+            long t = times[idx];
+            if (t >= from && t <= to) {
+                records.times[n] = t;
+                records.values[n] = values[idx];
+                n++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return Bytes allocated by the buffer.
+     */
+    public synchronized long getBytes() {
+        return (long) times.length * RECORD_BYTES;
+    }
+
+    private boolean grow() {
+        int len = times.length;
+        if (len >= depth) {
+            return false;
+        }
+        int cap = (int) Math.min((long) len * 2, depth);
+        if (!history.reserve((long) (cap - len) * RECORD_BYTES)) {
+            return false;
+        }
+
+        long[] t = new long[cap];
+        double[] v = new double[cap];
+        int tail = len - head;
+        System.arraycopy(times, head, t, 0, tail);
+        System.arraycopy(times, 0, t, tail, head);
+        System.arraycopy(values, head, v, 0, tail);
+        System.arraycopy(values, 0, v, tail, head);
+        times = t;
+        values = v;
+        head = 0;
+        return true;
+    }
+
+    /**
+     * Records copied out of a buffer.
+     */
+    public static class Records {
+
+        final long[] times;
+        final double[] values;
+
+        Records(int size) {
+            this.times = new long[size];
+            this.values = new double[size];
+        }
+
+        public int size() {
+            return times.length;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.SubscriptionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the components of a server that are materialized on demand and
+ * releases the ones that have not been used for a while.
+ */
+public class LazyTree {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyTree.class);
+
+    /**
+     * Default time in seconds before an unused component is released.
+     */
+    public static final int DEFAULT_IDLE = 600;
+
+    private final Map<Integer, Entry> expanded = new ConcurrentHashMap<>();
+    private final SubscriptionManager manager;
+    private final Sedona sedona;
+    private final long idle;
+
+    private ScheduledFuture<?> future;
+
+    public LazyTree(Sedona sedona, SubscriptionManager manager, int idle) {
+        this.sedona = sedona;
+        this.manager = manager;
+        this.idle = TimeUnit.SECONDS.toMillis(idle);
+    }
+
+    public boolean isExpanded(int id) {
+        return expanded.containsKey(id);
+    }
+
+    /**
+     * Marks a component as materialized.
+     *
+     * @param id ID of the component.
+     * @param parent ID of the parent of the component.
+     * @param node Node of the component.
+     */
+    public void expanded(int id, int parent, Node node) {
+        expanded.put(id, new Entry(id, parent, node));
+    }
+
+    /**
+     * Marks a component as recently used.
+     *
+     * @param id ID of the component.
+     */
+    public void touch(int id) {
+        Entry e = expanded.get(id);
+        if (e != null) {
+            e.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    public int size() {
+        return expanded.size();
+    }
+
+    public synchronized void start() {
+        if (future == null && idle > 0) {
+            schedule();
+        }
+    }
+
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        expanded.clear();
+    }
+
+    private synchronized void schedule() {
+        long delay = Math.max(idle / 2, 1000);
+        future = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } finally {
+                    synchronized (LazyTree.this) {
+                        if (future != null) {
+                            schedule();
+                        }
+                    }
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Releases the idle components in a single bottom-up pass. A
+     * component in use keeps its parents, and an idle component is
+     * released along with its idle parent.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        List<Entry> entries = new ArrayList<>(expanded.values());
+        for (Entry e : entries) {
+            e.path = e.node.getPath();
+        }
+        // Paths of children are longer than the path of their parent
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return b.path.length() - a.path.length();
+            }
+        });
+
+        Set<Integer> active = new HashSet<>();
+        Set<Integer> idleIds = new HashSet<>();
+        Map<Integer, List<Entry>> byParent = new HashMap<>();
+        List<Entry> idleEntries = new ArrayList<>();
+        for (Entry e : entries) {
+            List<Entry> siblings = byParent.get(e.parent);
+            if (siblings == null) {
+                siblings = new ArrayList<>();
+                byParent.put(e.parent, siblings);
+            }
+            siblings.add(e);
+
+            if (active.contains(e.id)
+                    || now - e.lastAccess < idle
+                    || isInUse(e.node)) {
+                active.add(e.parent);
+            } else {
+                idleIds.add(e.id);
+                idleEntries.add(e);
+            }
+        }
+        for (Entry e : idleEntries) {
+            if (!idleIds.contains(e.parent)) {
+                release(e, byParent);
+            }
+        }
+    }
+
+    private boolean isInUse(Node node) {
+        Map<String, Node> children = node.getChildren();
+        if (children != null) {
+            for (Node child : children.values()) {
+                if (child.getValue() != null && manager.hasValueSub(child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void release(Entry entry, Map<Integer, List<Entry>> byParent) {
+        forget(entry, byParent);
+        Node node = entry.node;
+        sedona.released(entry.id, node);
+
+        Map<String, Node> children = node.getChildren();
+        if (children != null) {
+            for (Node child : new ArrayList<>(children.values())) {
+                node.removeChild(child);
+            }
+        }
+        LOGGER.debug("Released {}", entry.path);
+    }
+
+    private void forget(Entry entry, Map<Integer, List<Entry>> byParent) {
+        expanded.remove(entry.id);
+        List<Entry> children = byParent.get(entry.id);
+        if (children != null) {
+            for (Entry child : children) {
+                forget(child, byParent);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final int id;
+        private final int parent;
+        private final Node node;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private String path;
+
+        Entry(int id, int parent, Node node) {
+            this.id = id;
+            this.parent = parent;
+            this.node = node;
+        }
+    }
+}
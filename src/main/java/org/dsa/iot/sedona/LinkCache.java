@@ -0,0 +1,278 @@
+package org.dsa.iot.sedona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Link;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the links of the components of a server. Missing links are read
+ * with pipelined update requests in batches and the components are then
+ * subscribed to links, so the client keeps their links current from the
+ * link events of the server. A component is served from the cache while
+ * it holds that subscription. Once its links were not asked for during
+ * the linger time the component is unsubscribed again.
+ */
+public class LinkCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LinkCache.class);
+
+    /**
+     * Amount of components read per request batch.
+     */
+    private static final int MAX_BATCH = 100;
+
+    /**
+     * Maximum amount of components SOX accepts in a single subscription
+     * request.
+     */
+    private static final int MAX_SUBSCRIBE = 255;
+
+    /**
+     * Time in milliseconds a component stays subscribed to links after
+     * they were last asked for.
+     */
+    static final long LINGER = TimeUnit.MINUTES.toMillis(2);
+
+    private final Map<Integer, Long> used = new HashMap<>();
+    private final Sedona sedona;
+
+    private ScheduledFuture<?> future;
+
+    public LinkCache(Sedona sedona) {
+        this.sedona = sedona;
+    }
+
+    /**
+     * @param id ID of a component.
+     * @return Links from and to the component.
+     * @throws Exception An error occurred loading the links.
+     */
+    public Link[] get(int id) throws Exception {
+        Link[] l = get(new int[]{id}).get(id);
+        return l == null ? Link.none : l;
+    }
+
+    /**
+     * Gets the links of components, loading the missing ones in batches.
+     *
+     * @param ids IDs of the components.
+     * @return Links by component ID, components that do not exist are
+     *         left out.
+     * @throws Exception An error occurred loading the links.
+     */
+    public Map<Integer, Link[]> get(int[] ids) throws Exception {
+        SoxClient client = sedona.getClient();
+        if (client == null) {
+            throw new IllegalStateException("Not connected");
+        }
+        long now = System.currentTimeMillis();
+        Map<Integer, Link[]> result = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        synchronized (this) {
+            for (int id : ids) {
+                SoxComponent c = client.cache(id);
+                if (c != null && isSubscribed(c)) {
+                    used.put(id, now);
+                    result.put(id, c.links());
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        int[] missingIds = new int[missing.size()];
+        for (int i = 0; i < missingIds.length; i++) {
+            missingIds[i] = missing.get(i);
+        }
+        SoxComponent[] comps = client.load(missingIds, false);
+
+        List<SoxComponent> read = new ArrayList<>();
+        for (SoxComponent c : comps) {
+            if (c != null) {
+                read.add(c);
+            }
+        }
+        for (int i = 0; i < read.size(); i += MAX_BATCH) {
+            List<SoxComponent> batch = read.subList(i, Math.min(read.size(), i + MAX_BATCH));
+            long start = System.nanoTime();
+            client.update(batch.toArray(new SoxComponent[batch.size()]),
+                          SoxComponent.LINKS);
+            sedona.getMetrics().record(Metrics.Op.UPDATE, start);
+        }
+        for (SoxComponent c : read) {
+            result.put(c.id(), c.links());
+        }
+
+        // The subscription sends the current links again, so a change
+        // between the update and the subscription is not missed
+        for (int i = 0; i < read.size(); i += MAX_SUBSCRIBE) {
+            List<SoxComponent> batch = read.subList(i, Math.min(read.size(), i + MAX_SUBSCRIBE));
+            try {
+                long start = System.nanoTime();
+                client.subscribeAsync(batch.toArray(new SoxComponent[batch.size()]),
+                                      SoxComponent.LINKS);
+                sedona.getMetrics().record(Metrics.Op.SUBSCRIBE, start);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to subscribe to links", e);
+                continue;
+            }
+            synchronized (this) {
+                for (SoxComponent c : batch) {
+                    used.put(c.id(), now);
+                }
+                schedule(LINGER);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops tracking a component that was deleted or whose ID is reused.
+     *
+     * @param id ID of the component.
+     */
+    public synchronized void invalidate(int id) {
+        used.remove(id);
+    }
+
+    /**
+     * Stops tracking every component. Used when the client is closed,
+     * which drops its subscriptions.
+     */
+    public synchronized void clear() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        used.clear();
+    }
+
+    /**
+     * @return Amount of components subscribed to links.
+     */
+    public synchronized int size() {
+        return used.size();
+    }
+
+    /**
+     * Unsubscribes the components whose links were not asked for during
+     * the linger time.
+     */
+    private void expire() {
+        SoxClient client = sedona.getClient();
+        List<SoxComponent> expired = new ArrayList<>();
+        synchronized (this) {
+            future = null;
+            long now = System.currentTimeMillis();
+            long next = LINGER;
+            Iterator<Map.Entry<Integer, Long>> it = used.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Long> e = it.next();
+                long left = e.getValue() + LINGER - now;
+                if (left > 0) {
+                    next = Math.min(next, left);
+                    continue;
+                }
+                it.remove();
+                SoxComponent c = client == null ? null : client.cache(e.getKey());
+                if (c != null) {
+                    expired.add(c);
+                }
+            }
+            if (!used.isEmpty()) {
+                schedule(next);
+            }
+        }
+
+        SoxComponent[] comps = expired.toArray(new SoxComponent[expired.size()]);
+        for (int i = 0; i < comps.length; i += MAX_SUBSCRIBE) {
+            SoxComponent[] batch = Arrays.copyOfRange(comps, i, Math.min(comps.length, i + MAX_SUBSCRIBE));
+            try {
+                long start = System.nanoTime();
+                client.unsubscribe(batch, SoxComponent.LINKS);
+                sedona.getMetrics().record(Metrics.Op.UNSUBSCRIBE, start);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to unsubscribe from links", e);
+            }
+        }
+    }
+
+    private void schedule(long delay) {
+        if (future != null) {
+            return;
+        }
+        future = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isSubscribed(SoxComponent comp) {
+        return (comp.subscription() & SoxComponent.LINKS) != 0;
+    }
+
+    /**
+     * Resolves the path of a cached component from its names.
+     *
+     * @param client Client of the server.
+     * @param id ID of the component.
+     * @return Path relative to the server, starting with the app, or
+     *         {@code null} if the component or a parent is not cached.
+     */
+    public static String path(SoxClient client, int id) {
+        SoxComponent c = client.cache(id);
+        if (c == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        names.add(c.name());
+        while (c.id() != 0) {
+            c = client.cache(c.parentId());
+            if (c == null || names.size() > 64) {
+                return null;
+            }
+            names.add(c.name());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = names.size() - 1; i >= 0; i--) {
+            sb.append(names.get(i));
+            if (i > 0) {
+                sb.append('/');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param links Links of several components.
+     * @return Links without duplicates, every link is seen from both
+     *         ends.
+     */
+    public static List<Link> distinct(Iterable<Link[]> links) {
+        Set<Link> seen = new LinkedHashSet<>();
+        for (Link[] l : links) {
+            Collections.addAll(seen, l);
+        }
+        return new ArrayList<>(seen);
+    }
+}
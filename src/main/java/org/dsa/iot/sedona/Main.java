@@ -32,7 +32,7 @@ public class Main extends DSLinkHandler {
             Map<String, Node> children = node.getChildren();
             if (children != null) {
                 for (Node child : children.values()) {
-                    if (child.getAction() == null) {
+                    if (Sedona.isServer(child)) {
                         Sedona sedona = child.getMetaData();
                         if (sedona != null) {
                             sedona.destroy();
@@ -0,0 +1,222 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeBuilder;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import org.dsa.iot.dslink.util.Objects;
+import sedona.dasp.DaspSession;
+import sedona.sox.SoxClient;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime metrics of a server. Metrics are recorded with atomic counters
+ * and histograms so they can stay enabled in production, and published
+ * onto the {@code metrics} node periodically.
+ */
+public class Metrics {
+
+    /**
+     * Interval in seconds between metric updates.
+     */
+    private static final int INTERVAL = 5;
+
+    public enum Op {
+        SUBSCRIBE("subscribe"),
+        UNSUBSCRIBE("unsubscribe"),
+        WRITE("write"),
+        INVOKE("invoke"),
+        LOAD("load"),
+        READ_PROP("readProp"),
+        UPDATE("update");
+
+        private final String name;
+
+        Op(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Histogram[] histograms = new Histogram[Op.values().length];
+    private final long[][] previous = new long[histograms.length][];
+    private final OpNodes[] opNodes = new OpNodes[histograms.length];
+    private final AtomicLong events = new AtomicLong();
+    private final Sedona sedona;
+
+    private final Node eventsPerSecond;
+    private final Node pendingWrites;
+    private final Node treeBuildTime;
+    private final Node subscribed;
+    private final Node polled;
+    private final Node queueDepth;
+    private final Node rejected;
+    private final Node daspSent;
+    private final Node daspReceived;
+    private final Node daspRetries;
+    private final Node daspSendWindow;
+    private final Node daspSendRetry;
+
+    private ScheduledFuture<?> future;
+    private long lastEvents;
+    private long lastTime = System.currentTimeMillis();
+
+    public Metrics(Sedona sedona, Node parent) {
+        this.sedona = sedona;
+        NodeBuilder b = parent.createChild("metrics");
+        b.setSerializable(false);
+        Node node = b.build();
+
+        Node sox = createFolder(node, "sox");
+        for (Op op : Op.values()) {
+            int i = op.ordinal();
+            histograms[i] = new Histogram();
+            previous[i] = histograms[i].snapshot();
+            opNodes[i] = new OpNodes(createFolder(sox, op.getName()));
+        }
+
+        eventsPerSecond = createValue(node, "eventsPerSecond", null);
+        pendingWrites = createValue(node, "pendingWrites", null);
+        treeBuildTime = createValue(node, "treeBuildTime", "ms");
+        subscribed = createValue(node, "subscribedComponents", null);
+        polled = createValue(node, "polledComponents", null);
+        queueDepth = createValue(node, "queueDepth", null);
+        rejected = createValue(node, "rejectedTasks", null);
+
+        Node dasp = createFolder(node, "dasp");
+        daspSent = createValue(dasp, "sent", null);
+        daspReceived = createValue(dasp, "received", null);
+        daspRetries = createValue(dasp, "retries", null);
+        daspSendWindow = createValue(dasp, "sendWindow", null);
+        daspSendRetry = createValue(dasp, "sendRetry", "ms");
+    }
+
+    /**
+     * Records the latency of a SOX exchange.
+     *
+     * @param op Operation of the exchange.
+     * @param start Start of the exchange from {@link System#nanoTime()}.
+     */
+    public void record(Op op, long start) {
+        histograms[op.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a component event received from the server.
+     */
+    public void event() {
+        events.incrementAndGet();
+    }
+
+    /**
+     * Records the duration of a tree build.
+     *
+     * @param start Start of the build from {@link System#nanoTime()}.
+     */
+    public void treeBuilt(long start) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        treeBuildTime.setValue(new Value(ms));
+    }
+
+    public synchronized void start() {
+        if (future != null) {
+            return;
+        }
+        future = Objects.getDaemonThreadPool().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                publish();
+            }
+        }, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    private synchronized void publish() {
+        for (int i = 0; i < histograms.length; i++) {
+            long[] current = histograms[i].snapshot();
+            long[] recent = Histogram.diff(current, previous[i]);
+            previous[i] = current;
+            opNodes[i].update(current, recent);
+        }
+
+        long now = System.currentTimeMillis();
+        long count = events.get();
+        double elapsed = Math.max(now - lastTime, 1) / 1000.0;
+        eventsPerSecond.setValue(new Value((count - lastEvents) / elapsed));
+        lastEvents = count;
+        lastTime = now;
+
+        pendingWrites.setValue(new Value(sedona.getWriteQueue().size()));
+        subscribed.setValue(new Value(sedona.getSubscriptions().getSubscribedCount()));
+        polled.setValue(new Value(sedona.getPoller().getPolledCount()));
+        ServerExecutor executor = sedona.getExecutor();
+        queueDepth.setValue(new Value(executor.getQueueDepth()));
+        rejected.setValue(new Value(executor.getRejected()));
+
+        SoxClient client = sedona.getClient();
+        DaspSession session = client != null ? client.session() : null;
+        if (session != null) {
+            daspSent.setValue(new Value(session.numSent()));
+            daspReceived.setValue(new Value(session.numReceived()));
+            daspRetries.setValue(new Value(session.numRetries()));
+            daspSendWindow.setValue(new Value(session.sendWindowSize()));
+            daspSendRetry.setValue(new Value(session.sendWindowRetry()));
+        }
+    }
+
+    private static Node createFolder(Node parent, String name) {
+        NodeBuilder b = parent.createChild(name);
+        b.setSerializable(false);
+        return b.build();
+    }
+
+    private static Node createValue(Node parent, String name, String unit) {
+        NodeBuilder b = parent.createChild(name);
+        b.setValueType(ValueType.NUMBER);
+        b.setSerializable(false);
+        if (unit != null) {
+            b.setAttribute("unit", new Value(unit));
+        }
+        return b.build();
+    }
+
+    private static class OpNodes {
+
+        private final Node count;
+        private final Node p50;
+        private final Node p95;
+        private final Node p99;
+
+        OpNodes(Node node) {
+            count = createValue(node, "count", null);
+            p50 = createValue(node, "p50", "ms");
+            p95 = createValue(node, "p95", "ms");
+            p99 = createValue(node, "p99", "ms");
+        }
+
+        /**
+         * @param total Counts since the link started.
+         * @param recent Counts since the last update.
+         */
+        void update(long[] total, long[] recent) {
+            count.setValue(new Value(Histogram.count(total)));
+            if (Histogram.count(recent) > 0) {
+                p50.setValue(new Value(Histogram.percentile(recent, 0.50)));
+                p95.setValue(new Value(Histogram.percentile(recent, 0.95)));
+                p99.setValue(new Value(Histogram.percentile(recent, 0.99)));
+            }
+        }
+    }
+}
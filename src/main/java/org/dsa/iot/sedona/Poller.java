@@ -0,0 +1,285 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the runtime values of components instead of subscribing to them,
+ * for devices that cannot hold many subscriptions. The poll interval can
+ * be set for the whole server or any node below it, the nearest node
+ * wins. Components are grouped by their interval and every group is read
+ * in batches. The interval of a group stretches while reads are slow or
+ * fail and recovers once they succeed again.
+ */
+public class Poller {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Poller.class);
+
+    /**
+     * Default poll interval of a server in milliseconds, {@code 0}
+     * subscribes instead.
+     */
+    public static final int DEFAULT_INTERVAL = 0;
+
+    /**
+     * Amount of components read per update request batch.
+     */
+    private static final int MAX_BATCH = 100;
+
+    /**
+     * A poll may take at most this fraction of the interval.
+     */
+    private static final int DUTY = 4;
+
+    /**
+     * Maximum factor a failing group stretches its interval by.
+     */
+    private static final int MAX_BACKOFF = 32;
+
+    private final Map<String, Long> settings = new ConcurrentHashMap<>();
+    private final Map<Long, Group> groups = new HashMap<>();
+    private final Map<Integer, Group> polled = new HashMap<>();
+    private final Sedona sedona;
+    private final Node parent;
+
+    public Poller(Sedona sedona, Node parent, int interval) {
+        this.sedona = sedona;
+        this.parent = parent;
+        if (interval > 0) {
+            settings.put("", (long) interval);
+        }
+
+        Value v = parent.getRoConfig("poll");
+        JsonObject obj = v == null ? null : v.getMap();
+        if (obj != null) {
+            for (Map.Entry<String, Object> e : obj) {
+                settings.put(e.getKey(), ((Number) e.getValue()).longValue());
+            }
+        }
+    }
+
+    /**
+     * Sets or removes the poll interval of a node and everything below
+     * it. Components already subscribed or polled switch over with
+     * {@link SubscriptionBatcher#refresh()}.
+     *
+     * @param path Path relative to the server, empty for the server.
+     * @param interval Interval in milliseconds, {@code 0} to subscribe,
+     *                 or negative to remove the setting.
+     */
+    public synchronized void set(String path, long interval) {
+        String key = CovFilter.normalize(path);
+        if (interval < 0) {
+            settings.remove(key);
+        } else {
+            settings.put(key, interval);
+        }
+
+        JsonObject obj = new JsonObject();
+        for (Map.Entry<String, Long> e : settings.entrySet()) {
+            obj.put(e.getKey(), e.getValue());
+        }
+        parent.setRoConfig("poll", new Value(obj));
+    }
+
+    /**
+     * @param id ID of a component.
+     * @return Poll interval of the component in milliseconds, or
+     *         {@code 0} if it is subscribed.
+     */
+    public long resolve(int id) {
+        if (settings.isEmpty()) {
+            return 0;
+        }
+        String path = "";
+        Node node = sedona.getComponentNode(id);
+        String root = parent.getPath();
+        if (node != null && node.getPath().startsWith(root)) {
+            path = node.getPath().substring(root.length());
+        }
+        while (true) {
+            Long interval = settings.get(path);
+            if (interval != null) {
+                return interval;
+            }
+            if (path.isEmpty()) {
+                return 0;
+            }
+            path = path.substring(0, path.lastIndexOf('/'));
+        }
+    }
+
+    /**
+     * Starts polling a component or moves it to another interval.
+     *
+     * @param id ID of the component.
+     * @param rate Requested interval in milliseconds.
+     */
+    public synchronized void add(int id, long rate) {
+        Group group = polled.get(id);
+        if (group != null) {
+            if (group.rate == rate) {
+                return;
+            }
+            remove(id);
+        }
+        group = groups.get(rate);
+        if (group == null) {
+            group = new Group(rate);
+            groups.put(rate, group);
+        }
+        group.ids.add(id);
+        polled.put(id, group);
+        if (group.future == null) {
+            schedule(group, 0);
+        }
+    }
+
+    /**
+     * Stops polling a component.
+     *
+     * @param id ID of the component.
+     */
+    public synchronized void remove(int id) {
+        Group group = polled.remove(id);
+        if (group == null) {
+            return;
+        }
+        group.ids.remove(id);
+        if (group.ids.isEmpty()) {
+            groups.remove(group.rate);
+            if (group.future != null) {
+                group.future.cancel(false);
+                group.future = null;
+            }
+        }
+    }
+
+    /**
+     * @return Amount of components currently polled.
+     */
+    public synchronized int getPolledCount() {
+        return polled.size();
+    }
+
+    public synchronized void stop() {
+        for (Group group : groups.values()) {
+            if (group.future != null) {
+                group.future.cancel(false);
+                group.future = null;
+            }
+        }
+        groups.clear();
+        polled.clear();
+    }
+
+    private void schedule(final Group group, long delay) {
+        group.future = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                poll(group);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(Group group) {
+        int[] ids;
+        synchronized (this) {
+            if (groups.get(group.rate) != group) {
+                return;
+            }
+            ids = new int[group.ids.size()];
+            int i = 0;
+            for (int id : group.ids) {
+                ids[i++] = id;
+            }
+        }
+
+        SoxClient client = sedona.getClient();
+        boolean failed = false;
+        long start = System.nanoTime();
+        if (client != null) {
+            try {
+                // Polled components are cached, loading them is free
+                SoxComponent[] comps = client.load(ids, false);
+                int count = 0;
+                for (SoxComponent c : comps) {
+                    if (c != null) {
+                        comps[count++] = c;
+                    }
+                }
+                for (int i = 0; i < count; i += MAX_BATCH) {
+                    int end = Math.min(count, i + MAX_BATCH);
+                    SoxComponent[] batch = Arrays.copyOfRange(comps, i, end);
+                    long s = System.nanoTime();
+                    client.update(batch, SoxComponent.RUNTIME);
+                    sedona.getMetrics().record(Metrics.Op.UPDATE, s);
+                }
+            } catch (Exception e) {
+                failed = true;
+                LOGGER.debug("Failed to poll {} components", ids.length, e);
+            }
+        }
+        long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        synchronized (this) {
+            group.future = null;
+            if (groups.get(group.rate) != group) {
+                return;
+            }
+            if (client != null) {
+                group.adapt(took, failed);
+            }
+            schedule(group, group.interval);
+        }
+    }
+
+    /**
+     * Components polled at the same requested interval.
+     */
+    private static class Group {
+
+        private final Set<Integer> ids = new LinkedHashSet<>();
+        private final long rate;
+
+        private ScheduledFuture<?> future;
+        private long interval;
+        private long rtt;
+
+        Group(long rate) {
+            this.rate = rate;
+            this.interval = rate;
+        }
+
+        /**
+         * Adapts the interval to the time the last poll took. The
+         * interval backs off while polls fail and otherwise moves
+         * halfway back to the larger of the requested interval and the
+         * interval the round trip time allows.
+         */
+        void adapt(long took, boolean failed) {
+            rtt = rtt == 0 ? took : (rtt * 7 + took) / 8;
+            long floor = Math.max(rate, rtt * DUTY);
+            if (failed) {
+                long max = Math.max(floor, rate * MAX_BACKOFF);
+                interval = Math.min(Math.max(interval, floor) * 2, max);
+            } else {
+                interval = Math.max(floor, (interval + floor) / 2);
+            }
+        }
+    }
+}
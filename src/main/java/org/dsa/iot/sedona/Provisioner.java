@@ -0,0 +1,544 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.actions.table.Row;
+import org.dsa.iot.dslink.node.actions.table.Table;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Link;
+import sedona.Slot;
+import sedona.Type;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Applies a JSON template of components, config values and links to a
+ * server. The template is diffed against the cached component tree so
+ * applying it again only sends what changed. The config of the existing
+ * components is refreshed first with pipelined update requests and the
+ * links of all link sources come from the {@link LinkCache} in one batch.
+ * Config writes go through the write queue of the server and are awaited
+ * once the tree is applied. SOX has no pipelined form of add, rename,
+ * reorder and link, so those cost a round trip each.
+ * <p>
+ * A template looks like:
+ * <pre>
+ * {
+ *   "root": "app/plant",
+ *   "reorder": false,
+ *   "components": [
+ *     {"name": "ahu1", "type": "sys::Folder", "reorder": true, "children": [
+ *       {"name": "sp", "was": "setpoint", "type": "control::ConstFloat",
+ *        "config": {"out": 72.5}}
+ *     ]}
+ *   ],
+ *   "links": [
+ *     {"from": "ahu1/sp.out", "to": "ahu1/loop.sp"}
+ *   ]
+ * }
+ * </pre>
+ * Components are matched by name, or renamed from {@code was}. With
+ * {@code reorder} the children of a component are moved into the order of
+ * the template. Paths of links are relative to the root.
+ */
+public class Provisioner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Provisioner.class);
+
+    /**
+     * Amount of components refreshed per update request batch.
+     */
+    private static final int MAX_BATCH = 100;
+
+    private final Sedona sedona;
+    private final String root;
+    private final List<Spec> components;
+    private final boolean reorder;
+    private final List<String[]> links;
+    private final boolean dryRun;
+
+    private final List<QueuedWrite> writes = new ArrayList<>();
+
+    private Table table;
+    private int changes;
+    private int errors;
+
+    /**
+     * @param sedona Server to provision.
+     * @param template Template to apply.
+     * @param dryRun Whether to only report the differences.
+     * @throws IllegalArgumentException The template is invalid.
+     */
+    public Provisioner(Sedona sedona, JsonObject template, boolean dryRun) {
+        this.sedona = sedona;
+        String r = template.get("root");
+        this.root = r == null ? "app" : r;
+        this.components = parseSpecs(template.get("components"));
+        Boolean b = template.get("reorder");
+        this.reorder = b != null && b;
+        this.links = new ArrayList<>();
+        JsonArray array = template.get("links");
+        if (array != null) {
+            for (int i = 0; i < array.size(); i++) {
+                JsonObject obj = array.get(i);
+                String from = obj.get("from");
+                String to = obj.get("to");
+                if (from == null || to == null) {
+                    throw new IllegalArgumentException("Link needs from and to");
+                }
+                links.add(new String[]{from, to});
+            }
+        }
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Applies the template, streaming a row per change into the table
+     * followed by a summary. The table is closed once done.
+     *
+     * @param table Table of the results.
+     */
+    public void run(Table table) {
+        run(table, sedona.getClient());
+    }
+
+    /**
+     * Applies the template through a client.
+     *
+     * @param table Table of the results.
+     * @param client Client of the server, {@code null} if not connected.
+     */
+    void run(Table table, SoxClient client) {
+        this.table = table;
+        try {
+            if (client == null) {
+                throw new IllegalStateException("Not connected");
+            }
+            SoxComponent top = resolve(client.load(0), root, true);
+            if (top == null) {
+                throw new IllegalArgumentException("No such root: " + root);
+            }
+
+            List<SoxComponent> existing = new ArrayList<>();
+            existing.add(top);
+            collect(top, components, existing);
+            refresh(client, existing);
+
+            apply(client, top, root, components, reorder);
+            awaitWrites();
+            if (!links.isEmpty()) {
+                Map<Integer, Link[]> known = readLinks(linkSources(top));
+                for (String[] link : links) {
+                    link(client, top, link[0], link[1], known);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to provision '{}'", sedona.getName(), e);
+            error("template", root, e);
+        }
+        String summary = changes + (dryRun ? " pending" : " applied") + ", " + errors + " failed";
+        report("done", root, summary, null);
+        table.close();
+    }
+
+    /**
+     * Reads the config of the existing components of the template with
+     * pipelined update requests.
+     *
+     * @param client Client of the server.
+     * @param existing Existing components.
+     * @throws Exception An error occurred reading the config.
+     */
+    void refresh(SoxClient client, List<SoxComponent> existing) throws Exception {
+        for (int i = 0; i < existing.size(); i += MAX_BATCH) {
+            List<SoxComponent> batch = existing.subList(i, Math.min(existing.size(), i + MAX_BATCH));
+            long start = System.nanoTime();
+            client.update(batch.toArray(new SoxComponent[batch.size()]),
+                          SoxComponent.CONFIG);
+            sedona.getMetrics().record(Metrics.Op.UPDATE, start);
+        }
+    }
+
+    /**
+     * @param ids IDs of the link sources.
+     * @return Current links by component ID.
+     * @throws Exception An error occurred loading the links.
+     */
+    Map<Integer, Link[]> readLinks(int[] ids) throws Exception {
+        return sedona.getLinkCache().get(ids);
+    }
+
+    /**
+     * Collects the existing components of the template.
+     */
+    private static void collect(SoxComponent parent, List<Spec> specs,
+                                List<SoxComponent> existing) {
+        for (Spec spec : specs) {
+            SoxComponent c = find(parent, spec);
+            if (c != null) {
+                existing.add(c);
+                collect(c, spec.children, existing);
+            }
+        }
+    }
+
+    private void apply(SoxClient client, SoxComponent parent,
+                       String parentPath, List<Spec> specs, boolean reorder) {
+        List<Integer> order = new ArrayList<>();
+        for (Spec spec : specs) {
+            String path = parentPath + "/" + spec.name;
+            try {
+                SoxComponent c = parent == null ? null : find(parent, spec);
+                if (c != null && !c.type.qname.equals(spec.type)) {
+                    throw new IllegalStateException("Type is " + c.type.qname);
+                }
+                if (c != null && !c.name().equals(spec.name)) {
+                    report("rename", path, "from " + c.name(), null);
+                    if (!dryRun) {
+                        client.rename(c, spec.name);
+                    }
+                }
+                if (c == null) {
+                    c = add(client, parent, path, spec);
+                } else {
+                    write(c, path, spec);
+                }
+                if (c != null) {
+                    order.add(c.id());
+                }
+                apply(client, c, path, spec.children, spec.reorder);
+            } catch (Exception e) {
+                error("component", path, e);
+            }
+        }
+
+        if (parent != null && reorder) {
+            try {
+                reorder(client, parent, parentPath, order);
+            } catch (Exception e) {
+                error("reorder", parentPath, e);
+            }
+        }
+    }
+
+    private SoxComponent add(SoxClient client, SoxComponent parent,
+                             String path, Spec spec) throws Exception {
+        Type type = client.readSchema().type(spec.type);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown type " + spec.type);
+        }
+        Slot[] props = type.configProps();
+        sedona.Value[] values = new sedona.Value[props.length];
+        for (int i = 0; i < props.length; i++) {
+            values[i] = props[i].def();
+            Object v = spec.config.get(props[i].name);
+            if (v != null) {
+                values[i] = parse(type, props[i].name, v);
+            }
+        }
+        report("add", path, spec.type, null);
+        if (dryRun || parent == null) {
+            return null;
+        }
+        return client.add(parent, type, spec.name, values);
+    }
+
+    /**
+     * Queues the changed config values of a component. In a dry run the
+     * writes are reported right away, otherwise once they completed.
+     */
+    private void write(SoxComponent c, String path, Spec spec) {
+        for (Map.Entry<String, Object> e : spec.config.entrySet()) {
+            String name = e.getKey();
+            SlotInfo info = configSlot(c.type, name);
+            sedona.Value val = FleetCommand.parse(info, String.valueOf(e.getValue()));
+            sedona.Value cur = c.get(info.getSlot());
+            if (cur != null && cur.encodeString().equals(val.encodeString())) {
+                continue;
+            }
+            String slotPath = path + "." + name;
+            if (dryRun) {
+                report("write", slotPath, val.encodeString(), null);
+                continue;
+            }
+            // The node of the slot republishes the value the server reports
+            Node node = sedona.getComponentNode(c.id());
+            if (node != null) {
+                node = node.getChild(name);
+            }
+            Future<Void> write = sedona.getWriteQueue().enqueue(c, info, val, node);
+            if (write == null) {
+                error("write", slotPath, new IllegalStateException("Write queue full"));
+            } else {
+                writes.add(new QueuedWrite(slotPath, val.encodeString(), write));
+            }
+        }
+    }
+
+    /**
+     * Reports the queued writes once the server acknowledged them.
+     */
+    private void awaitWrites() {
+        for (QueuedWrite w : writes) {
+            try {
+                w.future.get();
+                report("write", w.path, w.value, null);
+            } catch (ExecutionException e) {
+                error("write", w.path, (Exception) e.getCause());
+            } catch (Exception e) {
+                error("write", w.path, e);
+            }
+        }
+        writes.clear();
+    }
+
+    /**
+     * Moves the templated children first, in the order of the template,
+     * followed by the remaining children in their current order.
+     */
+    private void reorder(SoxClient client, SoxComponent parent,
+                         String path, List<Integer> order) throws Exception {
+        int[] current = parent.childrenIds();
+        List<Integer> wanted = new ArrayList<>(order);
+        for (int id : current) {
+            if (!wanted.contains(id)) {
+                wanted.add(id);
+            }
+        }
+        if (wanted.size() != current.length) {
+            // Children still to be added in a dry run
+            return;
+        }
+        int[] ids = new int[wanted.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = wanted.get(i);
+        }
+        if (Arrays.equals(ids, current)) {
+            return;
+        }
+        report("reorder", path, null, null);
+        if (!dryRun) {
+            client.reorder(parent, ids);
+        }
+    }
+
+    /**
+     * @return IDs of the existing source components of the links, so
+     *         their links are read in a single batch.
+     */
+    private int[] linkSources(SoxComponent top) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String[] link : links) {
+            try {
+                Endpoint src = endpoint(top, link[0]);
+                if (src != null) {
+                    ids.add(src.comp.id());
+                }
+            } catch (IllegalArgumentException ignored) {
+                // Reported when the link is applied
+            }
+        }
+        int[] result = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) {
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    private void link(SoxClient client, SoxComponent top,
+                      String from, String to, Map<Integer, Link[]> known) {
+        String path = from + " -> " + to;
+        try {
+            Endpoint src = endpoint(top, from);
+            Endpoint dst = endpoint(top, to);
+            if (src == null || dst == null) {
+                if (dryRun) {
+                    report("link", path, null, null);
+                    return;
+                }
+                throw new IllegalArgumentException("No such component");
+            }
+            Link link = new Link(src.comp, src.slot, dst.comp, dst.slot);
+            Link[] existing = known.get(src.comp.id());
+            if (existing != null && Arrays.asList(existing).contains(link)) {
+                return;
+            }
+            report("link", path, null, null);
+            if (!dryRun) {
+                client.link(link);
+            }
+        } catch (Exception e) {
+            error("link", path, e);
+        }
+    }
+
+    /**
+     * @return Endpoint of a link, or {@code null} if its component does
+     *         not exist.
+     */
+    private static Endpoint endpoint(SoxComponent top, String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Missing slot: " + path);
+        }
+        SoxComponent c = resolve(top, path.substring(0, dot), false);
+        if (c == null) {
+            return null;
+        }
+        String name = path.substring(dot + 1);
+        Slot slot = c.type.slot(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("No slot " + name + " on " + c.type.qname);
+        }
+        return new Endpoint(c, slot);
+    }
+
+    /**
+     * @param comp Component the path starts at.
+     * @param path Slash separated component names.
+     * @param self Whether the first name is the component itself.
+     * @return Resolved component, or {@code null} if it does not exist.
+     */
+    private static SoxComponent resolve(SoxComponent comp, String path,
+                                        boolean self) {
+        String[] names = path.replaceAll("^/+|/+$", "").split("/+");
+        int i = 0;
+        if (self) {
+            if (!comp.name().equals(names[0])) {
+                return null;
+            }
+            i = 1;
+        }
+        for (; i < names.length && comp != null; i++) {
+            if (!names[i].isEmpty()) {
+                comp = comp.child(names[i]);
+            }
+        }
+        return comp;
+    }
+
+    private static SoxComponent find(SoxComponent parent, Spec spec) {
+        SoxComponent c = parent.child(spec.name);
+        if (c == null && spec.was != null) {
+            c = parent.child(spec.was);
+        }
+        return c;
+    }
+
+    private static sedona.Value parse(Type type, String name, Object value) {
+        return FleetCommand.parse(configSlot(type, name), String.valueOf(value));
+    }
+
+    private static SlotInfo configSlot(Type type, String name) {
+        for (SlotInfo info : TypeCache.getSlots(type)) {
+            if (info.getName().equals(name) && !info.isAction()) {
+                if (!info.getSlot().isConfig()) {
+                    throw new IllegalArgumentException(name + " is not a config slot");
+                }
+                return info;
+            }
+        }
+        throw new IllegalArgumentException("No slot " + name + " on " + type.qname);
+    }
+
+    private void report(String op, String path, String detail, String error) {
+        if (error == null && !"done".equals(op)) {
+            changes++;
+        }
+        table.addRow(Row.make(new Value(op),
+                              new Value(path),
+                              new Value(detail),
+                              new Value(error)));
+    }
+
+    private void error(String op, String path, Exception e) {
+        errors++;
+        String error = e.getMessage() != null ? e.getMessage() : e.toString();
+        report(op, path, null, error);
+    }
+
+    private static List<Spec> parseSpecs(JsonArray array) {
+        List<Spec> specs = new ArrayList<>();
+        if (array == null) {
+            return specs;
+        }
+        for (int i = 0; i < array.size(); i++) {
+            JsonObject obj = array.get(i);
+            String name = obj.get("name");
+            String type = obj.get("type");
+            if (name == null || type == null) {
+                throw new IllegalArgumentException("Component needs a name and type");
+            }
+            Map<String, Object> config = new LinkedHashMap<>();
+            JsonObject c = obj.get("config");
+            if (c != null) {
+                for (Map.Entry<String, Object> e : c) {
+                    config.put(e.getKey(), e.getValue());
+                }
+            }
+            Boolean reorder = obj.get("reorder");
+            specs.add(new Spec(name, type, (String) obj.get("was"), config,
+                               reorder != null && reorder,
+                               parseSpecs((JsonArray) obj.get("children"))));
+        }
+        return specs;
+    }
+
+    private static class Spec {
+
+        private final String name;
+        private final String type;
+        private final String was;
+        private final Map<String, Object> config;
+        private final boolean reorder;
+        private final List<Spec> children;
+
+        Spec(String name, String type, String was, Map<String, Object> config,
+             boolean reorder, List<Spec> children) {
+            this.name = name;
+            this.type = type;
+            this.was = was;
+            this.config = config;
+            this.reorder = reorder;
+            this.children = children;
+        }
+    }
+
+    private static class QueuedWrite {
+
+        private final String path;
+        private final String value;
+        private final Future<Void> future;
+
+        QueuedWrite(String path, String value, Future<Void> future) {
+            this.path = path;
+            this.value = value;
+            this.future = future;
+        }
+    }
+
+    private static class Endpoint {
+
+        private final SoxComponent comp;
+        private final Slot slot;
+
+        Endpoint(SoxComponent comp, Slot slot) {
+            this.comp = comp;
+            this.slot = slot;
+        }
+    }
+}
@@ -3,27 +3,33 @@ package org.dsa.iot.sedona;
 import org.dsa.iot.dslink.node.Node;
 import org.dsa.iot.dslink.node.NodeBuilder;
 import org.dsa.iot.dslink.node.SubscriptionManager;
-import org.dsa.iot.dslink.node.Writable;
-import org.dsa.iot.dslink.node.actions.Action;
 import org.dsa.iot.dslink.node.value.Value;
-import org.dsa.iot.dslink.node.value.ValuePair;
 import org.dsa.iot.dslink.node.value.ValueType;
-import org.dsa.iot.dslink.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.dsa.iot.dslink.util.handler.Handler;
-import sedona.Facets;
 import sedona.Slot;
+import sedona.Type;
 import sedona.dasp.DaspSocket;
 import sedona.sox.SoxClient;
 import sedona.sox.SoxComponent;
 import sedona.sox.SoxComponentListener;
+import sedona.sox.VersionInfo;
 
+import java.io.File;
 import java.net.InetAddress;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Samuel Grenier
@@ -31,20 +37,102 @@ import java.util.concurrent.TimeUnit;
 public class Sedona {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Sedona.class);
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Initial reconnection delay in milliseconds.
+     */
+    private static final long RECONNECT_MIN = 5000;
+
+    /**
+     * Maximum reconnection delay in milliseconds.
+     */
+    private static final long RECONNECT_MAX = 300000;
+
+    /**
+     * System property of the maximum amount of servers that connect in
+     * parallel when the link starts.
+     */
+    public static final String CONNECT_CONCURRENCY_PROP = "sedona.connectConcurrency";
+    private static final int DEFAULT_CONNECT_CONCURRENCY = 8;
+
+    private final Map<Integer, Node> components = new ConcurrentHashMap<>();
+    private final ComponentIndex index = new ComponentIndex();
+    private final LinkCache links = new LinkCache(this);
     private final SubscriptionManager manager;
+    private final SubscriptionBatcher subscriptions;
+    private final ServerExecutor executor;
+    private final WriteQueue writes;
+    private final LazyTree lazyTree;
+    private final ServerStatus status;
+    private final Metrics metrics;
+    private final SlotBinder slots;
+    private final Poller poller;
+    private final DaspTuner tuner;
+    private final boolean lazy;
+    private final boolean treeCache;
     private final Node parent;
 
     private boolean running = true;
     private ScheduledFuture<?> future;
-    private SoxClient client;
+    private volatile SoxClient client;
+    private int attempts;
 
     public Sedona(Node parent, SubscriptionManager manager) {
         this.manager = manager;
         this.parent = parent;
+        this.executor = new ServerExecutor(parent.getName(),
+                getInt(parent, "queueSize", ServerExecutor.DEFAULT_QUEUE_SIZE));
+        executor.setResync(new Runnable() {
+            @Override
+            public void run() {
+                resync();
+            }
+        });
+        this.subscriptions = new SubscriptionBatcher(this,
+                getInt(parent, "subscriptionLinger", SubscriptionBatcher.DEFAULT_LINGER));
+        this.writes = new WriteQueue(this, parent.getName(),
+                getInt(parent, "writeQueueMax", WriteQueue.DEFAULT_MAX));
+        this.lazy = getBool(parent, "lazy", false);
+        this.treeCache = getBool(parent, "treeCache", true);
+        this.lazyTree = new LazyTree(this, manager,
+                getInt(parent, "idleRelease", LazyTree.DEFAULT_IDLE));
+        this.poller = new Poller(this, parent,
+                getInt(parent, "pollInterval", Poller.DEFAULT_INTERVAL));
+        this.tuner = new DaspTuner(this, DaspTuning.fromNode(parent));
+        History history = new History(parent.getName(),
+                getInt(parent, "historyDepth", History.DEFAULT_DEPTH),
+                getInt(parent, "historyMemory", History.DEFAULT_MEMORY));
         parent.setMetaData(this);
         NodeBuilder b = parent.createChild("version");
         b.setAction(Actions.getVersion(this));
         b.build();
+        b = parent.createChild("setCov");
+        b.setAction(Actions.getSetCovAction(this));
+        b.build();
+        b = parent.createChild("setPoll");
+        b.setAction(Actions.getSetPollAction(this));
+        b.build();
+        b = parent.createChild("editDasp");
+        b.setAction(Actions.getEditDaspAction(this, parent));
+        b.build();
+        b = parent.createChild("getFile");
+        b.setAction(Actions.getGetFileAction(this));
+        b.build();
+        b = parent.createChild("putFile");
+        b.setAction(Actions.getPutFileAction(this));
+        b.build();
+        b = parent.createChild("provision");
+        b.setAction(Actions.getProvisionAction(this));
+        b.build();
+        b = parent.createChild("linkGraph");
+        b.setAction(Actions.getLinkGraphAction(this));
+        b.build();
+        this.status = new ServerStatus(parent);
+        this.metrics = new Metrics(this, parent);
+        metrics.start();
+        this.slots = new SlotBinder(this, parent, history);
+        slots.start();
     }
 
     public synchronized void destroy() {
@@ -53,9 +141,18 @@ public class Sedona {
             future.cancel(false);
 
         }
+        subscriptions.clear();
+        poller.stop();
+        tuner.stop();
+        writes.stop();
+        lazyTree.stop();
+        metrics.stop();
+        slots.stop();
+        executor.stop();
         if (client != null) {
             try {
                 client.close();
+                SocketPool.release(client.socket);
             } catch (Exception ignored) {
             }
         }
@@ -72,25 +169,49 @@ public class Sedona {
             String user = parent.getRoConfig("username").getString();
             char[] pass = parent.getPassword();
 
+            status.set(ServerStatus.CONNECTING);
             try {
-                int queue = DaspSocket.SESSION_QUEUING;
-                DaspSocket socket = DaspSocket.open(-1, null, queue);
+                DaspSocket socket = SocketPool.acquire();
                 InetAddress ina = InetAddress.getByName(url);
                 String password = "";
                 if (pass != null) {
                     password = new String(pass);
                 }
                 client = new SoxClient(socket, ina, port, user, password);
-                client.connect();
+                client.connect(tuner.options());
+                tuner.start(client.session());
+                client.addListener(new SoxClient.Listener() {
+                    @Override
+                    public void soxClientClosed(SoxClient closed) {
+                        handleClosed(closed);
+                    }
+                });
                 LOGGER.info("Opened connection to '{}'", parent.getName());
-                try {
-                    SoxComponent top = client.loadApp();
-                    buildTree(parent, top);
-                    client.subscribeToAllTreeEvents();
-                } catch (Exception e) {
-                    LOGGER.error("Failed to build tree", e);
+
+                // Loading failures fail the connection like any other error
+                String key = null;
+                TreeSnapshot snapshot = null;
+                SoxComponent top;
+                if (lazy) {
+                    long start = System.nanoTime();
+                    top = client.load(0);
+                    metrics.record(Metrics.Op.LOAD, start);
+                    lazyTree.start();
+                } else if (treeCache) {
+                    key = TreeSnapshot.key(readVersion());
+                    snapshot = TreeSnapshot.read(getSnapshotFile());
+                    if (snapshot != null && !key.equals(snapshot.getKey())) {
+                        snapshot = null;
+                    }
+                    top = loadFromSnapshot(snapshot);
+                } else {
+                    long start = System.nanoTime();
+                    top = client.loadApp();
+                    metrics.record(Metrics.Op.LOAD, start);
                 }
+                buildInitialTree(client, top, key, snapshot);
             } catch (Exception e) {
+                status.set(ServerStatus.FAILED);
                 if (running) {
                     if (checked) {
                         throw new RuntimeException(e);
@@ -102,180 +223,595 @@ public class Sedona {
         }
     }
 
-    public synchronized SoxClient getClient() {
+    /**
+     * Builds the tree of a new connection on the lane of the server. The
+     * server is only marked as connected once the tree is built, a
+     * failure fails the connection and schedules a reconnection.
+     *
+     * @param c Client of the new connection.
+     * @param top Root component of the app.
+     * @param key Key of the server, {@code null} if no snapshot is saved.
+     * @param snapshot Snapshot of the previous connection, can be
+     *                 {@code null}.
+     */
+    private void buildInitialTree(final SoxClient c,
+                                  final SoxComponent top,
+                                  final String key,
+                                  final TreeSnapshot snapshot) {
+        boolean queued = executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long start = System.nanoTime();
+                    if (lazy) {
+                        Node node = buildComponent(parent, top);
+                        expand(node, top);
+                    } else {
+                        doBuildTree(parent, top, snapshot);
+                    }
+                    metrics.treeBuilt(start);
+                    if (key != null) {
+                        saveSnapshot(key, top, snapshot);
+                    }
+                    reconcile(c);
+                    c.subscribeToAllTreeEvents();
+                } catch (Exception e) {
+                    buildFailed(c, e);
+                    return;
+                }
+                synchronized (Sedona.this) {
+                    if (client == c) {
+                        attempts = 0;
+                        status.set(ServerStatus.CONNECTED);
+                    }
+                }
+            }
+        });
+        if (!queued) {
+            buildFailed(c, new IllegalStateException("Queue is full"));
+        }
+    }
+
+    private synchronized void buildFailed(SoxClient c, Exception e) {
+        LOGGER.error("Failed to build tree of '{}'", parent.getName(), e);
+        if (client == c) {
+            status.set(ServerStatus.FAILED);
+            if (running) {
+                scheduleReconnect();
+            }
+        }
+    }
+
+    /**
+     * Closes the current connection so a new one is opened with the
+     * current settings.
+     */
+    public synchronized void reconnect() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * @return Name of the server node.
+     */
+    public String getName() {
+        return parent.getName();
+    }
+
+    public DaspTuner getDaspTuner() {
+        return tuner;
+    }
+
+    public SoxClient getClient() {
         return client;
     }
 
+    public ServerExecutor getExecutor() {
+        return executor;
+    }
+
+    public ServerStatus getStatus() {
+        return status;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public SubscriptionBatcher getSubscriptions() {
+        return subscriptions;
+    }
+
+    public WriteQueue getWriteQueue() {
+        return writes;
+    }
+
+    public CovFilter getCovFilter() {
+        return slots.getCovFilter();
+    }
+
+    public History getHistory() {
+        return slots.getHistory();
+    }
+
+    public SlotBinder getSlotBinder() {
+        return slots;
+    }
+
+    public ComponentIndex getIndex() {
+        return index;
+    }
+
+    public LinkCache getLinkCache() {
+        return links;
+    }
+
+    public Node getNode() {
+        return parent;
+    }
+
+    public Poller getPoller() {
+        return poller;
+    }
+
+    /**
+     * @param id ID of a component.
+     * @return Node of the component, or {@code null} if it has none.
+     */
+    Node getComponentNode(int id) {
+        return components.get(id);
+    }
+
+    /**
+     * Reads the version properties of the server.
+     *
+     * @return Version information of the server.
+     * @throws Exception An error occurred reading the properties.
+     */
+    public VersionInfo readVersion() throws Exception {
+        SoxClient client = getClient();
+        if (client == null) {
+            throw new IllegalStateException("Not connected");
+        }
+        long start = System.nanoTime();
+        VersionInfo info = client.readVersion();
+        metrics.record(Metrics.Op.READ_PROP, start);
+        return info;
+    }
+
+    /**
+     * Drops the state of everything below a component after the lazy
+     * tree released its node. The components stay indexed so they can
+     * still be searched, tree events keep their entries current.
+     *
+     * @param id ID of the component.
+     * @param node Node of the component.
+     */
+    void released(int id, Node node) {
+        for (int child : index.descendants(id)) {
+            components.remove(child);
+        }
+        slots.unbind(node);
+    }
+
     public void invoke(SoxComponent component, Slot slot, sedona.Value value) {
         try {
+            long start = System.nanoTime();
             client.invoke(component, slot, value);
+            metrics.record(Metrics.Op.INVOKE, start);
         } catch (Exception e) {
             LOGGER.error("Error invoking", e);
         }
     }
 
-    private void scheduleReconnect() {
-        LOGGER.warn("Reconnection to Sedona server scheduled");
-        client = null;
-        future = Objects.getDaemonThreadPool().schedule(new Runnable() {
+    private void handleClosed(final SoxClient closed) {
+        executor.execute(new Runnable() {
             @Override
             public void run() {
-                connect(false);
+                synchronized (Sedona.this) {
+                    if (running && client == closed) {
+                        LOGGER.warn("Lost connection to '{}'", parent.getName());
+                        status.set(ServerStatus.DISCONNECTED);
+                        scheduleReconnect();
+                    }
+                }
             }
-        }, 5, TimeUnit.SECONDS);
+        });
     }
 
-    private void buildTree(final Node parent,
-                           final SoxComponent comp) {
-        Objects.getDaemonThreadPool().execute(new Runnable() {
+    /**
+     * Schedules a reconnection using exponential backoff with jitter so
+     * servers that lost their connection at the same time don't
+     * reconnect at the same time.
+     */
+    private void scheduleReconnect() {
+        subscriptions.clear();
+        links.clear();
+        tuner.stop();
+        writes.clear();
+        lazyTree.stop();
+        if (client != null) {
+            try {
+                client.close();
+                SocketPool.release(client.socket);
+            } catch (Exception ignored) {
+            }
+            client = null;
+        }
+
+        long delay = RECONNECT_MIN << Math.min(attempts, 16);
+        delay = Math.min(delay, RECONNECT_MAX);
+        delay = delay / 2 + (long) (RANDOM.nextDouble() * (delay / 2));
+        attempts++;
+
+        LOGGER.warn("Reconnection to '{}' scheduled in {}ms", parent.getName(), delay);
+        future = executor.schedule(new Runnable() {
             @Override
             public void run() {
-                String name = comp.name();
-                NodeBuilder builder = getOrCreateBuilder(parent, name);
+                connect(false);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
 
-                if (comp.listener == null) {
-                    comp.listener = new SoxComponentListener() {
-                        @Override
-                        public void changed(SoxComponent c, int mask) {
-                            buildTree(parent, c);
-                        }
-                    };
+    /**
+     * Rebuilds the tree from the client cache after the lane rejected
+     * tasks. The cache is kept current by the client itself, so the tree
+     * changes of the rejected tasks are applied by rebuilding from it.
+     */
+    private void resync() {
+        SoxClient c = getClient();
+        if (c == null) {
+            return;
+        }
+        if (c.isClosed()) {
+            // The close notification may have been rejected too
+            handleClosed(c);
+            return;
+        }
+        LOGGER.warn("Resynchronizing tree of '{}'", parent.getName());
+        long start = System.nanoTime();
+        if (lazy) {
+            for (Map.Entry<Integer, Node> entry : components.entrySet()) {
+                SoxComponent comp = c.cache(entry.getKey());
+                if (comp != null && lazyTree.isExpanded(comp.id())) {
+                    expand(entry.getValue(), comp);
                 }
+            }
+        } else {
+            SoxComponent top = c.cache(0);
+            if (top != null) {
+                doBuildTree(parent, top);
+            }
+        }
+        metrics.treeBuilt(start);
+        reconcile(c);
+    }
 
-                final Node node = builder.build();
-                node.setSerializable(false);
-
-                for (final Slot slot : comp.type.slots) {
-                    final Node n = node.createChild(slot.name).build();
-                    if (slot.isAction()) {
-                        Sedona s = Sedona.this;
-                        Action a = Actions.getInvokableSedonaNode(s, slot, comp);
-                        n.setAction(a);
-                        continue;
-                    }
-
-                    sedona.Value val = comp.get(slot);
-                    Map<String, Integer> map = null;
-                    String[] split = null;
-                    {
-                        Facets facets = slot.facets;
-                        if (facets != null) {
-                            String range = facets.gets("range");
-                            if (range != null) {
-                                map = new LinkedHashMap<>();
-                                split = range.split(", ");
-                                for (int i = 0; i < split.length; i++) {
-                                    map.put(split[i], i);
-                                }
-                            }
-                        }
-                    }
-
-                    Value value = Utils.fromSedonaValue(val, slot);
-                    if (map != null) {
-                        n.setValueType(ValueType.makeEnum(map.keySet()));
-                        int id = value.getNumber().intValue();
-                        n.setValue(new Value(split[id]));
-                    } else {
-                        if ("meta".equals(slot.name)) {
-                            Meta meta = new Meta(value.getNumber().intValue());
-                            handleMeta(n, meta);
-                        }
-                        n.setValueType(value.getType());
-                        n.setValue(value);
-                    }
-
-                    setSubHandlers(n, comp);
-                    if (!slot.facets.getb("readonly", false)) {
-                        final Map<String, Integer> enums = map;
-                        final int typeId = slot.type.id;
-                        n.setWritable(Writable.WRITE);
-                        n.getListener().setValueHandler(new Handler<ValuePair>() {
-                            @Override
-                            public void handle(ValuePair event) {
-                                try {
-                                    Value v = event.getCurrent();
-                                    sedona.Value val = null;
-                                    if (enums == null) {
-                                        val = Utils.fromSdkValue(v, typeId);
-                                    } else {
-                                        Integer i = enums.get(v.getString());
-                                        if (i != null) {
-                                            val = sedona.Byte.make(i);
-                                        }
-                                    }
-                                    client.write(comp, slot, val);
-                                } catch (Exception e) {
-                                    LOGGER.error("Error setting value on {}", n.getPath(), e);
-                                    event.setReject(true);
-                                }
-                            }
-                        });
+    /**
+     * Reconciles the existing nodes with the app of a new connection.
+     * Nodes of components that no longer exist are removed and the
+     * components that still have value subscribers are resubscribed in
+     * a single batch.
+     *
+     * @param client Client of the new connection.
+     */
+    private void reconcile(final SoxClient client) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Integer> subscribed = new ArrayList<>();
+                Iterator<Map.Entry<Integer, Node>> it = components.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Node> entry = it.next();
+                    int id = entry.getKey();
+                    Node node = entry.getValue();
+                    if (!lazy && client.cache(id) == null) {
+                        it.remove();
+                        removeNode(node);
+                        index.remove(id);
+                        subscriptions.forget(id);
+                    } else if (subscriptions.isReferenced(id)) {
+                        subscribed.add(id);
                     }
                 }
 
-                SoxComponent[] children = comp.children();
-                if (children != null) {
-                    for (SoxComponent c : children) {
-                        buildTree(node, c);
+                if (subscribed.isEmpty()) {
+                    return;
+                }
+                int[] ids = new int[subscribed.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = subscribed.get(i);
+                }
+                try {
+                    long start = System.nanoTime();
+                    SoxComponent[] comps = client.load(ids);
+                    metrics.record(Metrics.Op.LOAD, start);
+                    for (SoxComponent c : comps) {
+                        if (c != null) {
+                            subscriptions.apply(c);
+                        }
                     }
+                    subscriptions.flush();
+                    LOGGER.info("Resubscribed to {} components of '{}'",
+                            ids.length, parent.getName());
+                } catch (Exception e) {
+                    LOGGER.error("Failed to resubscribe", e);
                 }
             }
         });
     }
 
-    private void handleMeta(Node node, Meta meta) {
-        Meta.buildMetaCoord(node, "x", meta.getX());
-        Meta.buildMetaCoord(node, "y", meta.getY());
-        Meta.buildSecGroup(node, "groupOne", meta.isGroupOne());
-        Meta.buildSecGroup(node, "groupTwo", meta.isGroupTwo());
-        Meta.buildSecGroup(node, "groupThree", meta.isGroupThree());
-        Meta.buildSecGroup(node, "groupFour", meta.isGroupFour());
+    /**
+     * Loads the app using the snapshot of the previous connection. Every
+     * known component is loaded in a single batch of tree requests, only
+     * components that were added since are loaded level by level.
+     *
+     * @param snapshot Snapshot of the server, can be {@code null}.
+     * @return Root component of the app.
+     * @throws Exception An error occurred loading the app.
+     */
+    private SoxComponent loadFromSnapshot(TreeSnapshot snapshot) throws Exception {
+        if (snapshot != null) {
+            try {
+                long start = System.nanoTime();
+                // Deleted components are skipped instead of failing the batch
+                client.load(snapshot.getIds(), false);
+                metrics.record(Metrics.Op.LOAD, start);
+                LOGGER.info("Loaded {} components of '{}' from snapshot",
+                        snapshot.getEntries().size(), parent.getName());
+            } catch (Exception e) {
+                LOGGER.warn("Snapshot of '{}' is stale", parent.getName(), e);
+            }
+        }
+        long start = System.nanoTime();
+        SoxComponent top = client.loadApp();
+        metrics.record(Metrics.Op.LOAD, start);
+        return top;
     }
 
-    private void setSubHandlers(final Node child,
-                                final SoxComponent component) {
-        child.getListener().setOnSubscribeHandler(new Handler<Node>() {
+    /**
+     * Saves the snapshot of the app unless it did not change since the
+     * previous one.
+     *
+     * @param key Key of the server.
+     * @param top Root component of the app.
+     * @param previous Previous snapshot, can be {@code null}.
+     */
+    private void saveSnapshot(final String key, final SoxComponent top,
+                              final TreeSnapshot previous) {
+        executor.execute(new Runnable() {
             @Override
-            public void handle(Node event) {
+            public void run() {
                 try {
-                    int mask = SoxComponent.RUNTIME;
-                    if ((component.subscription() & mask) != mask) {
-                        LOGGER.info("Subscribed to {}", child.getPath());
-                        mask = SoxComponent.RUNTIME | SoxComponent.CONFIG;
-                        client.subscribe(component, mask);
+                    TreeSnapshot snapshot = TreeSnapshot.capture(key, top, previous);
+                    if (!snapshot.equals(previous)) {
+                        snapshot.write(getSnapshotFile());
                     }
                 } catch (Exception e) {
-                    LOGGER.error("", e);
+                    LOGGER.warn("Failed to save snapshot of '{}'", parent.getName(), e);
                 }
             }
         });
+    }
+
+    private File getSnapshotFile() {
+        String home = System.getProperty("sedona.home", "");
+        File dir = new File(home, "cache");
+        return new File(dir, parent.getName() + ".snapshot");
+    }
 
-        child.getListener().setOnUnsubscribeHandler(new Handler<Node>() {
+    private void buildTree(final Node parent,
+                           final SoxComponent comp) {
+        executor.execute(new Runnable() {
             @Override
-            public void handle(Node event) {
-                try {
-                    Map<String, Node> children = child.getParent().getChildren();
-                    if (children != null) {
-                        for (Node child : children.values()) {
-                            if (child.getValue() != null
-                                    && manager.hasValueSub(child)) {
-                                return;
+            public void run() {
+                long start = System.nanoTime();
+                doBuildTree(parent, comp);
+                metrics.treeBuilt(start);
+            }
+        });
+    }
+
+    void doBuildTree(Node parent, SoxComponent comp) {
+        doBuildTree(parent, comp, null);
+    }
+
+    /**
+     * @param snapshot Snapshot providing the config values of components
+     *                 that are not subscribed to them, can be
+     *                 {@code null}.
+     */
+    private void doBuildTree(Node parent, SoxComponent comp,
+                             TreeSnapshot snapshot) {
+        Node node = buildComponent(parent, comp);
+        String[] values = null;
+        if (snapshot != null) {
+            values = snapshot.getValues(comp.id(), comp.type.qname);
+        }
+        buildSlots(node, comp, values);
+
+        SoxComponent[] children = comp.children();
+        if (children != null) {
+            for (SoxComponent c : children) {
+                doBuildTree(node, c, snapshot);
+            }
+        }
+    }
+
+    /**
+     * Materializes the slots of a component and creates the nodes of its
+     * children without materializing them. The children are loaded from
+     * the server in a single batch.
+     *
+     * @param node Node of the component.
+     * @param comp Component to materialize.
+     */
+    private void expand(Node node, SoxComponent comp) {
+        SoxClient client = getClient();
+        if (client == null) {
+            return;
+        }
+        buildSlots(node, comp);
+        lazyTree.expanded(comp.id(), comp.parentId(), node);
+
+        int[] ids = comp.childrenIds();
+        if (ids == null || ids.length == 0) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            SoxComponent[] children = client.load(ids);
+            metrics.record(Metrics.Op.LOAD, start);
+            for (SoxComponent c : children) {
+                if (c != null) {
+                    buildComponent(node, c);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Failed to load children of {}", node.getPath(), e);
+        }
+    }
+
+    private Node buildComponent(final Node parent,
+                                final SoxComponent comp) {
+        String name = comp.name();
+        NodeBuilder builder = getOrCreateBuilder(parent, name);
+
+        if (comp.listener == null) {
+            comp.listener = new SoxComponentListener() {
+                @Override
+                public void changed(SoxComponent c, int mask) {
+                    handleChanged(parent, c, mask);
+                }
+            };
+        }
+
+        final Node node = builder.build();
+        node.setSerializable(false);
+
+        index.put(comp);
+        // IDs of deleted components are reused by new ones
+        links.invalidate(comp.id());
+        Node prev = components.put(comp.id(), node);
+        if (prev != null && prev != node) {
+            // The component was renamed or moved
+            removeNode(prev);
+        }
+
+        if (lazy) {
+            final int id = comp.id();
+            node.getListener().setOnListHandler(new Handler<Node>() {
+                @Override
+                public void handle(Node event) {
+                    if (lazyTree.isExpanded(id)) {
+                        lazyTree.touch(id);
+                        return;
+                    }
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!lazyTree.isExpanded(id)) {
+                                expand(node, comp);
                             }
                         }
-                    }
+                    });
+                }
+            });
+        }
+        return node;
+    }
 
-                    int mask = SoxComponent.RUNTIME;
-                    if ((component.subscription() & mask) == mask) {
-                        LOGGER.info("Unsubscribed to {}", child.getPath());
-                        mask = SoxComponent.RUNTIME | SoxComponent.CONFIG;
-                        client.unsubscribe(component, mask);
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("Failed to unsubscribe", e);
+    private void buildSlots(Node node, SoxComponent comp) {
+        buildSlots(node, comp, null);
+    }
+
+    /**
+     * @param values Encoded config values of a snapshot, indexed by slot
+     *               ID. Used until the component is subscribed to its
+     *               config, can be {@code null}.
+     */
+    private void buildSlots(final Node node, final SoxComponent comp,
+                            String[] values) {
+        SlotInfo[] infos = TypeCache.getSlots(comp.type);
+        NodeBuilder b;
+        if (!hasSlot(infos, "getSnapshot")) {
+            b = node.createChild("getSnapshot");
+            b.setAction(Actions.getSnapshotAction(this, node, comp.id()));
+            b.build();
+        }
+        if (!hasSlot(infos, "getLinks")) {
+            b = node.createChild("getLinks");
+            b.setAction(Actions.getLinksAction(this, comp.id()));
+            b.build();
+        }
+
+        slots.bind(node, comp, infos, values);
+    }
+
+    /**
+     * Action names are longer than component names can be, so only the
+     * slots of a component can collide with them.
+     *
+     * @return Whether one of the slots has the name.
+     */
+    private static boolean hasSlot(SlotInfo[] infos, String name) {
+        for (SlotInfo info : infos) {
+            if (info.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handles a change event from the server. Value changes are applied
+     * onto the existing slot nodes while tree changes rebuild the
+     * component.
+     *
+     * @param parent Parent node of the component.
+     * @param comp Component that changed.
+     * @param mask Mask of what changed on the component.
+     */
+    private void handleChanged(Node parent,
+                               final SoxComponent comp,
+                               int mask) {
+        metrics.event();
+        final Node node = parent.getChild(comp.name());
+        if (lazy) {
+            if (node == null || !lazyTree.isExpanded(comp.id())) {
+                if ((mask & SoxComponent.TREE) != 0) {
+                    // Released components are still indexed
+                    index.put(comp);
                 }
+                return;
             }
-        });
+            if ((mask & SoxComponent.TREE) != 0) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        expand(node, comp);
+                    }
+                });
+                return;
+            }
+        } else if ((mask & SoxComponent.TREE) != 0 || node == null) {
+            buildTree(parent, comp);
+            return;
+        }
+
+        int valueMask = mask & (SoxComponent.RUNTIME | SoxComponent.CONFIG);
+        if (valueMask != 0) {
+            slots.update(node, comp, valueMask);
+        }
+    }
+
+    private void removeNode(Node node) {
+        Node parent = node.getParent();
+        if (parent != null && parent.getChild(node.getName()) == node) {
+            parent.removeChild(node);
+        }
+        slots.unbind(node);
     }
 
     public static void init(Node superRoot, SubscriptionManager manager) {
@@ -284,18 +820,116 @@ public class Sedona {
             child.setAction(Actions.getAddServerAction(superRoot, manager));
             child.build();
         }
+        {
+            NodeBuilder child = superRoot.createChild("fleetCommand");
+            child.setAction(Actions.getFleetCommandAction(superRoot));
+            child.build();
+        }
+        {
+            NodeBuilder child = superRoot.createChild("search");
+            child.setAction(Actions.getSearchAction(superRoot));
+            child.build();
+        }
+        {
+            NodeBuilder child = superRoot.createChild("backup");
+            child.setAction(Actions.getBackupAction(superRoot));
+            child.build();
+        }
 
+        final List<Sedona> servers = new ArrayList<>();
         {
             Map<String, Node> children = superRoot.getChildren();
             if (children != null) {
                 for (Node child : children.values()) {
-                    if (child.getAction() == null) {
-                        Sedona sedona = new Sedona(child, manager);
-                        sedona.connect(false);
+                    if (isServer(child)) {
+                        servers.add(new Sedona(child, manager));
                     }
                 }
             }
         }
+
+        final Node startupTime;
+        {
+            NodeBuilder b = superRoot.createChild("startupTime");
+            b.setValueType(ValueType.NUMBER);
+            b.setSerializable(false);
+            b.setAttribute("unit", new Value("ms"));
+            startupTime = b.build();
+        }
+
+        connectAll(servers, new Handler<Long>() {
+            @Override
+            public void handle(Long time) {
+                startupTime.setValue(new Value(time));
+                LOGGER.info("Started {} servers in {}ms", servers.size(), time);
+            }
+        });
+    }
+
+    /**
+     * Connects to servers in parallel, limited by the connect
+     * concurrency.
+     *
+     * @param servers Servers to connect to.
+     * @param onDone Called with the elapsed time in milliseconds once every
+     *               server finished its first connection attempt.
+     */
+    private static void connectAll(List<Sedona> servers,
+                                   final Handler<Long> onDone) {
+        final long start = System.currentTimeMillis();
+        if (servers.isEmpty()) {
+            onDone.handle(0L);
+            return;
+        }
+
+        int limit = Integer.getInteger(CONNECT_CONCURRENCY_PROP,
+                                       DEFAULT_CONNECT_CONCURRENCY);
+        limit = Math.max(1, Math.min(limit, servers.size()));
+        ThreadFactory factory = ServerExecutor.newThreadFactory("sedona-connect");
+        ExecutorService pool = Executors.newFixedThreadPool(limit, factory);
+
+        final AtomicInteger remaining = new AtomicInteger(servers.size());
+        for (final Sedona sedona : servers) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sedona.connect(false);
+                    } catch (Exception e) {
+                        LOGGER.error("Failed to connect", e);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            onDone.handle(System.currentTimeMillis() - start);
+                        }
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * @param node Child of the super root.
+     * @return Whether the node is a configured server.
+     */
+    public static boolean isServer(Node node) {
+        return node.getAction() == null && node.getRoConfig("url") != null;
+    }
+
+    private static int getInt(Node node, String name, int def) {
+        Value v = node.getRoConfig(name);
+        if (v == null || v.getNumber() == null) {
+            return def;
+        }
+        return v.getNumber().intValue();
+    }
+
+    private static boolean getBool(Node node, String name, boolean def) {
+        Value v = node.getRoConfig(name);
+        if (v == null || v.getBool() == null) {
+            return def;
+        }
+        return v.getBool();
     }
 
     private static NodeBuilder getOrCreateBuilder(Node parent, String name) {
@@ -0,0 +1,206 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution lane of a single server. Each server runs its work on its
+ * own thread with a bounded queue so a slow server cannot stall the
+ * other servers of the link. Rejected tasks may have been tree changes,
+ * so a rejection schedules a single resync of the server once the queue
+ * has room again.
+ */
+public class ServerExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerExecutor.class);
+
+    /**
+     * System property that enables virtual threads when the runtime
+     * supports them.
+     */
+    public static final String VIRTUAL_PROP = "sedona.virtualThreads";
+
+    /**
+     * Default maximum amount of queued tasks.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    /**
+     * Delay in milliseconds before a resync is queued after a rejection.
+     */
+    private static final long RESYNC_DELAY = 1000;
+
+    private static final boolean VIRTUAL = Boolean.getBoolean(VIRTUAL_PROP);
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicBoolean resyncPending = new AtomicBoolean();
+    private final ThreadPoolExecutor executor;
+    private final boolean virtual;
+    private final String name;
+
+    private volatile Runnable resync;
+
+    public ServerExecutor(String name, int queueSize) {
+        this.name = name;
+        ThreadFactory factory = null;
+        if (VIRTUAL) {
+            factory = virtualThreadFactory("sedona-" + name + "-");
+        }
+        this.virtual = factory != null;
+        if (factory == null) {
+            factory = newThreadFactory("sedona-" + name);
+        }
+        this.executor = new ThreadPoolExecutor(1, 1,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                factory);
+    }
+
+    /**
+     * Executes a task on the lane.
+     *
+     * @param task Task to execute.
+     * @return Whether the task was accepted.
+     */
+    public boolean execute(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            long count = rejected.incrementAndGet();
+            if (!executor.isShutdown()) {
+                LOGGER.warn("Queue of '{}' is full, {} tasks rejected", name, count);
+                if (resync != null && resyncPending.compareAndSet(false, true)) {
+                    scheduleResync();
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @param resync Task rebuilding the state of the server after tasks
+     *               were rejected, executed on the lane.
+     */
+    public void setResync(Runnable resync) {
+        this.resync = resync;
+    }
+
+    /**
+     * Queues the resync after a delay, retrying while the queue is still
+     * full. Tasks rejected before the resync runs are covered by it.
+     */
+    private void scheduleResync() {
+        Objects.getDaemonThreadPool().schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            resyncPending.set(false);
+                            resync.run();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    if (!executor.isShutdown()) {
+                        scheduleResync();
+                    }
+                }
+            }
+        }, RESYNC_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules a task to be executed on the lane after a delay.
+     *
+     * @param task Task to execute.
+     * @param delay Delay before the task is queued.
+     * @param unit Unit of the delay.
+     * @return Future of the delay.
+     */
+    public ScheduledFuture<?> schedule(final Runnable task,
+                                       long delay,
+                                       TimeUnit unit) {
+        return Objects.getDaemonThreadPool().schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(task);
+            }
+        }, delay, unit);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getCompleted() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates a thread factory for a thread owned by a server. Virtual
+     * threads are used when enabled and supported.
+     *
+     * @param name Name of the threads.
+     * @return Thread factory.
+     */
+    public static ThreadFactory newThreadFactory(final String name) {
+        if (VIRTUAL) {
+            ThreadFactory factory = virtualThreadFactory(name + "-");
+            if (factory != null) {
+                return factory;
+            }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                int id = count.getAndIncrement();
+                String n = id == 0 ? name : name + "-" + id;
+                Thread t = new Thread(r, n);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> clazz = Class.forName("java.lang.Thread$Builder");
+            Method naming = clazz.getMethod("name", String.class, long.class);
+            builder = naming.invoke(builder, prefix, 0L);
+            Method factory = clazz.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Exception e) {
+            LOGGER.debug("Virtual threads are not supported", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeBuilder;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Connection status nodes of a server.
+ */
+public class ServerStatus {
+
+    public static final String CONNECTING = "connecting";
+    public static final String CONNECTED = "connected";
+    public static final String DISCONNECTED = "disconnected";
+    public static final String FAILED = "failed";
+
+    private final Node status;
+    private final Node lastConnected;
+    private final Node lastFailed;
+
+    private volatile String current;
+
+    public ServerStatus(Node parent) {
+        {
+            NodeBuilder b = parent.createChild("status");
+            b.setValueType(ValueType.makeEnum(CONNECTING, CONNECTED,
+                                              DISCONNECTED, FAILED));
+            b.setValue(new Value(DISCONNECTED));
+            b.setSerializable(false);
+            status = b.build();
+        }
+        {
+            NodeBuilder b = status.createChild("lastConnected");
+            b.setValueType(ValueType.STRING);
+            b.setSerializable(false);
+            lastConnected = b.build();
+        }
+        {
+            NodeBuilder b = status.createChild("lastFailed");
+            b.setValueType(ValueType.STRING);
+            b.setSerializable(false);
+            lastFailed = b.build();
+        }
+        current = DISCONNECTED;
+    }
+
+    public String get() {
+        return current;
+    }
+
+    public void set(String s) {
+        current = s;
+        status.setValue(new Value(s));
+        if (CONNECTED.equals(s)) {
+            lastConnected.setValue(new Value(now()));
+        } else if (FAILED.equals(s)) {
+            lastFailed.setValue(new Value(now()));
+        }
+    }
+
+    private static String now() {
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        return fmt.format(new Date());
+    }
+}
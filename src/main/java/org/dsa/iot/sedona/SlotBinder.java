@@ -0,0 +1,209 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.NodeBuilder;
+import org.dsa.iot.dslink.node.Writable;
+import org.dsa.iot.dslink.node.actions.Action;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValuePair;
+import org.dsa.iot.dslink.util.handler.Handler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Slot;
+import sedona.sox.SoxComponent;
+
+/**
+ * Binds the slot nodes of a server to its components. Slot values are
+ * recorded into the history and pass the COV filter before they are
+ * published. Value subscribers are handed to the subscription batcher,
+ * which subscribes to or polls the component, and writes go through the
+ * write queue.
+ */
+public class SlotBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlotBinder.class);
+
+    private final Sedona server;
+    private final CovFilter cov;
+    private final History history;
+
+    /**
+     * @param sedona Server of the slots.
+     * @param parent Node of the server.
+     * @param history History of the slot values.
+     */
+    public SlotBinder(Sedona sedona, Node parent, History history) {
+        this.server = sedona;
+        this.history = history;
+        this.cov = new CovFilter(sedona, parent);
+    }
+
+    public CovFilter getCovFilter() {
+        return cov;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public void start() {
+        cov.start();
+    }
+
+    public void stop() {
+        cov.stop();
+    }
+
+    /**
+     * Creates the slot nodes of a component.
+     *
+     * @param node Node of the component.
+     * @param comp Component of the slots.
+     * @param infos Slots of the component.
+     * @param values Encoded config values of a snapshot, indexed by slot
+     *               ID. Used until the component is subscribed to its
+     *               config, can be {@code null}.
+     */
+    public void bind(Node node, final SoxComponent comp,
+                     SlotInfo[] infos, String[] values) {
+        for (final SlotInfo info : infos) {
+            final Slot slot = info.getSlot();
+            final Node n = node.createChild(slot.name).build();
+            if (info.isAction()) {
+                Action a = Actions.getInvokableSedonaNode(server, slot, comp);
+                n.setAction(a);
+                continue;
+            }
+
+            n.setValueType(info.getValueType());
+            sedona.Value val = comp.get(slot);
+            if (values != null && slot.isConfig()
+                    && (comp.subscription() & SoxComponent.CONFIG) == 0
+                    && slot.id < values.length && values[slot.id] != null) {
+                val = sedona.Value.defaultForType(info.getTypeId());
+                val = val.decodeString(values[slot.id]);
+            }
+            setValue(n, info, val);
+
+            setSubHandlers(n, comp);
+            if (history.isEnabled() && History.isSupported(info)) {
+                NodeBuilder b = n.createChild("getHistory");
+                b.setAction(Actions.getHistoryAction(server, n, info));
+                b.build();
+            }
+            if (info.isWritable()) {
+                n.setWritable(Writable.WRITE);
+                n.getListener().setValueHandler(new Handler<ValuePair>() {
+                    @Override
+                    public void handle(ValuePair event) {
+                        try {
+                            Value v = event.getCurrent();
+                            sedona.Value val = info.toSedona(v);
+                            WriteQueue writes = server.getWriteQueue();
+                            if (writes.enqueue(comp, info, val, n) == null) {
+                                event.setReject(true);
+                            }
+                        } catch (Exception e) {
+                            LOGGER.error("Error setting value on {}", n.getPath(), e);
+                            event.setReject(true);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Applies changed values of a component onto its slot nodes.
+     *
+     * @param node Node of the component.
+     * @param comp Component that changed.
+     * @param mask Runtime and config bits of what changed.
+     */
+    public void update(Node node, SoxComponent comp, int mask) {
+        for (SlotInfo info : TypeCache.getSlots(comp.type)) {
+            if (info.isAction()) {
+                continue;
+            }
+            int slotMask = info.getSlot().isConfig()
+                    ? SoxComponent.CONFIG
+                    : SoxComponent.RUNTIME;
+            if ((mask & slotMask) == 0) {
+                continue;
+            }
+
+            Node n = node.getChild(info.getName());
+            if (n != null) {
+                setValue(n, info, comp.get(info.getSlot()));
+            }
+        }
+    }
+
+    /**
+     * Drops the history of a node that was removed or released.
+     *
+     * @param node Node of a component.
+     */
+    public void unbind(Node node) {
+        history.remove(node.getPath());
+    }
+
+    private void setValue(Node n, SlotInfo info, sedona.Value val) {
+        if (history.isEnabled()) {
+            history.record(n, info, val);
+        }
+        CovFilter.State state = n.getMetaData();
+        if (state == null) {
+            state = new CovFilter.State(n, info);
+            n.setMetaData(state);
+        }
+        // Compared as sedona values, only accepted values are converted
+        if (cov.accept(state, val)) {
+            publish(n, info, val);
+        }
+    }
+
+    /**
+     * Publishes the value of a slot without filtering it.
+     */
+    void publish(Node n, SlotInfo info, sedona.Value val) {
+        Value value = info.toDsa(val);
+        if (!info.isEnum() && "meta".equals(info.getName())) {
+            Meta meta = new Meta(value.getNumber().intValue());
+            handleMeta(n, meta);
+        }
+        n.setValue(value);
+    }
+
+    private void handleMeta(Node node, Meta meta) {
+        Meta.buildMetaCoord(node, "x", meta.getX());
+        Meta.buildMetaCoord(node, "y", meta.getY());
+        Meta.buildSecGroup(node, "groupOne", meta.isGroupOne());
+        Meta.buildSecGroup(node, "groupTwo", meta.isGroupTwo());
+        Meta.buildSecGroup(node, "groupThree", meta.isGroupThree());
+        Meta.buildSecGroup(node, "groupFour", meta.isGroupFour());
+    }
+
+    private void setSubHandlers(final Node child,
+                                final SoxComponent component) {
+        child.getListener().setOnSubscribeHandler(new Handler<Node>() {
+            @Override
+            public void handle(Node event) {
+                LOGGER.info("Subscribed to {}", child.getPath());
+                server.getSubscriptions().acquire(component, child.getName());
+            }
+        });
+
+        child.getListener().setOnUnsubscribeHandler(new Handler<Node>() {
+            @Override
+            public void handle(Node event) {
+                try {
+                    LOGGER.info("Unsubscribed to {}", child.getPath());
+                    server.getSubscriptions().release(component, child.getName());
+                } catch (Exception e) {
+                    LOGGER.error("Failed to unsubscribe", e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,166 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.node.value.ValueType;
+import sedona.Facets;
+import sedona.Slot;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled metadata of a slot. Instances are immutable and shared
+ * between every component of the same type.
+ */
+public class SlotInfo {
+
+    private final Slot slot;
+    private final int typeId;
+    private final String[] range;
+    private final Map<String, Integer> enums;
+    private final ValueType valueType;
+    private final boolean writable;
+    private final CovSettings cov;
+
+    public SlotInfo(Slot slot) {
+        this.slot = slot;
+        this.typeId = slot.type.id;
+
+        Facets facets = slot.facets;
+        this.cov = CovSettings.fromFacets(facets);
+        String r = null;
+        boolean readOnly = false;
+        if (facets != null) {
+            r = facets.gets("range");
+            readOnly = facets.getb("readonly", false);
+        }
+
+        if (slot.isAction()) {
+            this.range = null;
+            this.enums = null;
+            this.valueType = null;
+            this.writable = false;
+        } else if (r != null) {
+            this.range = r.split(", ");
+            Map<String, Integer> map = new LinkedHashMap<>();
+            for (int i = 0; i < range.length; i++) {
+                map.put(range[i], i);
+            }
+            this.enums = Collections.unmodifiableMap(map);
+            this.valueType = ValueType.makeEnum(map.keySet());
+            this.writable = !readOnly;
+        } else {
+            this.range = null;
+            this.enums = null;
+            this.valueType = Utils.fromSedonaSlot(slot).getType();
+            this.writable = !readOnly;
+        }
+    }
+
+    public Slot getSlot() {
+        return slot;
+    }
+
+    public String getName() {
+        return slot.name;
+    }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    public boolean isAction() {
+        return slot.isAction();
+    }
+
+    public boolean isEnum() {
+        return enums != null;
+    }
+
+    /**
+     * @return Enum values indexed by their ordinal, or {@code null} if
+     *         the slot is not an enum.
+     */
+    public String[] getRange() {
+        return range;
+    }
+
+    /**
+     * @return Ordinals of the enum values, or {@code null} if the slot is
+     *         not an enum.
+     */
+    public Map<String, Integer> getEnums() {
+        return enums;
+    }
+
+    /**
+     * @return DSA value type of the slot, or {@code null} for actions.
+     */
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * @return Filter settings defined by the facets of the slot.
+     */
+    public CovSettings getCovSettings() {
+        return cov;
+    }
+
+    /**
+     * Converts a sedona value of this slot into a DSA value.
+     *
+     * @param val Sedona value, can be {@code null}.
+     * @return Converted DSA value.
+     */
+    public Value toDsa(sedona.Value val) {
+        if (range == null) {
+            return Utils.fromSedonaValue(val, slot);
+        } else if (val == null) {
+            return new Value((String) null);
+        }
+        int id = ordinal(val);
+        if (id < 0 || id >= range.length) {
+            return new Value(String.valueOf(id));
+        }
+        return new Value(range[id]);
+    }
+
+    /**
+     * @param val Value of an enum slot, which may be any integer type.
+     * @return Ordinal of the value.
+     */
+    static int ordinal(sedona.Value val) {
+        if (val instanceof sedona.Byte) {
+            return ((sedona.Byte) val).val;
+        } else if (val instanceof sedona.Short) {
+            return ((sedona.Short) val).val;
+        } else if (val instanceof sedona.Int) {
+            return ((sedona.Int) val).val;
+        }
+        return Utils.fromSedonaValue(val).getNumber().intValue();
+    }
+
+    /**
+     * Converts a DSA value into a sedona value of this slot.
+     *
+     * @param value DSA value.
+     * @return Converted sedona value, or {@code null} if an enum value
+     *         is not in range.
+     */
+    public sedona.Value toSedona(Value value) {
+        if (enums == null) {
+            return Utils.fromSdkValue(value, typeId);
+        }
+        Integer i = enums.get(value.getString());
+        if (i == null) {
+            return null;
+        }
+        return sedona.Byte.make(i);
+    }
+}
@@ -0,0 +1,71 @@
+package org.dsa.iot.sedona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.dasp.DaspSocket;
+
+/**
+ * Provides the DASP sockets of the SOX clients. By default every client
+ * gets its own socket. When a pool size is configured the sessions of
+ * all servers are spread over a fixed amount of shared sockets, which
+ * saves a UDP socket and two threads per server.
+ */
+public class SocketPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SocketPool.class);
+
+    /**
+     * System property holding the amount of shared sockets. A value of
+     * {@code 0} gives every server its own socket.
+     */
+    public static final String SIZE_PROP = "sedona.socketPool";
+
+    private static final DaspSocket[] SOCKETS = new DaspSocket[Integer.getInteger(SIZE_PROP, 0)];
+
+    /**
+     * Gets a socket for a new session. Shared sockets are opened on
+     * demand and the one with the least sessions is returned.
+     *
+     * @return Socket using session queuing.
+     * @throws Exception The socket could not be opened.
+     */
+    public static synchronized DaspSocket acquire() throws Exception {
+        if (SOCKETS.length == 0) {
+            return open();
+        }
+
+        DaspSocket best = null;
+        for (int i = 0; i < SOCKETS.length; i++) {
+            DaspSocket socket = SOCKETS[i];
+            if (socket == null || socket.isClosed()) {
+                socket = open();
+                SOCKETS[i] = socket;
+                LOGGER.info("Opened shared socket {} of {}", i + 1, SOCKETS.length);
+            }
+            if (best == null
+                    || socket.sessions().length < best.sessions().length) {
+                best = socket;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Releases a socket once its session is closed. Shared sockets are
+     * kept open for other sessions.
+     *
+     * @param socket Socket returned by {@link #acquire()}.
+     */
+    public static synchronized void release(DaspSocket socket) {
+        for (DaspSocket s : SOCKETS) {
+            if (s == socket) {
+                return;
+            }
+        }
+        socket.close();
+    }
+
+    private static DaspSocket open() throws Exception {
+        return DaspSocket.open(-1, null, DaspSocket.SESSION_QUEUING);
+    }
+}
@@ -0,0 +1,343 @@
+package org.dsa.iot.sedona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects component subscribe and unsubscribe requests over a short
+ * window and sends them to the server using the batched SOX calls.
+ * <p>
+ * Components are subscribed while any of their slots has a DSA value
+ * subscriber. Once the last one is gone the component lingers for a
+ * while before it is unsubscribed, so quickly switching between views
+ * does not cause SOX traffic. Components with a poll interval are handed
+ * to the {@link Poller} instead of being subscribed.
+ */
+public class SubscriptionBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionBatcher.class);
+
+    /**
+     * Subscription mask used for all value subscriptions.
+     */
+    public static final int MASK = SoxComponent.RUNTIME | SoxComponent.CONFIG;
+
+    /**
+     * Maximum amount of components SOX accepts in a single request.
+     */
+    private static final int MAX_BATCH = 255;
+
+    /**
+     * Time in milliseconds to collect requests before flushing them.
+     */
+    private static final long WINDOW = 50;
+
+    /**
+     * Default time in seconds a component stays subscribed after its
+     * last subscriber is gone.
+     */
+    public static final int DEFAULT_LINGER = 30;
+
+    private final Set<SoxComponent> pendingSubs = new LinkedHashSet<>();
+    private final Set<SoxComponent> pendingUnsubs = new LinkedHashSet<>();
+    private final Map<Integer, Set<String>> refs = new HashMap<>();
+    private final Map<Integer, Lingering> lingering = new LinkedHashMap<>();
+    private final AtomicInteger subscribed = new AtomicInteger();
+    private final Sedona sedona;
+    private final long linger;
+
+    private ScheduledFuture<?> future;
+    private ScheduledFuture<?> lingerFuture;
+
+    /**
+     * @param sedona Server of the subscriptions.
+     * @param linger Time in seconds before an unused component is
+     *               unsubscribed.
+     */
+    public SubscriptionBatcher(Sedona sedona, int linger) {
+        this.sedona = sedona;
+        this.linger = TimeUnit.SECONDS.toMillis(linger);
+    }
+
+    /**
+     * Adds a value subscriber of a slot. The component is subscribed
+     * when this is its first subscribed slot.
+     *
+     * @param component Component of the slot.
+     * @param slot Name of the slot.
+     */
+    public synchronized void acquire(SoxComponent component, String slot) {
+        int id = component.id();
+        Set<String> slots = refs.get(id);
+        if (slots == null) {
+            slots = new HashSet<>();
+            refs.put(id, slots);
+        }
+        if (slots.add(slot) && slots.size() == 1) {
+            lingering.remove(id);
+            apply(component);
+        }
+    }
+
+    /**
+     * Removes the value subscriber of a slot. The component is
+     * unsubscribed after the linger time when this was its last
+     * subscribed slot.
+     *
+     * @param component Component of the slot.
+     * @param slot Name of the slot.
+     */
+    public synchronized void release(SoxComponent component, String slot) {
+        int id = component.id();
+        Set<String> slots = refs.get(id);
+        if (slots == null || !slots.remove(slot) || !slots.isEmpty()) {
+            return;
+        }
+        refs.remove(id);
+        if (linger <= 0) {
+            drop(component);
+            return;
+        }
+        lingering.put(id, new Lingering(component, System.currentTimeMillis()));
+        if (lingerFuture == null) {
+            scheduleExpire(linger);
+        }
+    }
+
+    /**
+     * @param id ID of a component.
+     * @return Whether any slot of the component has a value subscriber.
+     */
+    public synchronized boolean isReferenced(int id) {
+        return refs.containsKey(id);
+    }
+
+    /**
+     * Drops the subscribers of a component that no longer exists.
+     *
+     * @param id ID of the component.
+     */
+    public synchronized void forget(int id) {
+        refs.remove(id);
+        lingering.remove(id);
+        sedona.getPoller().remove(id);
+    }
+
+    /**
+     * Subscribes to or polls a referenced component, depending on its
+     * poll interval.
+     *
+     * @param component Component to apply.
+     */
+    public synchronized void apply(SoxComponent component) {
+        Poller poller = sedona.getPoller();
+        long rate = poller.resolve(component.id());
+        if (rate > 0) {
+            poller.add(component.id(), rate);
+            unsubscribe(component);
+        } else {
+            poller.remove(component.id());
+            subscribe(component);
+        }
+    }
+
+    /**
+     * Applies changed poll intervals to the referenced components.
+     */
+    public void refresh() {
+        // Read outside the lock, the server locks itself before the batcher
+        SoxClient client = sedona.getClient();
+        if (client == null) {
+            return;
+        }
+        synchronized (this) {
+            for (int id : refs.keySet()) {
+                SoxComponent c = client.cache(id);
+                if (c != null) {
+                    apply(c);
+                }
+            }
+        }
+    }
+
+    public synchronized void subscribe(SoxComponent component) {
+        pendingUnsubs.remove(component);
+        pendingSubs.add(component);
+        schedule();
+    }
+
+    public synchronized void unsubscribe(SoxComponent component) {
+        pendingSubs.remove(component);
+        pendingUnsubs.add(component);
+        schedule();
+    }
+
+    /**
+     * Drops all pending requests. Used when the client is closed since
+     * the pending components belong to the old session. The subscribers
+     * are kept so their components can be subscribed again.
+     */
+    public synchronized void clear() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        if (lingerFuture != null) {
+            lingerFuture.cancel(false);
+            lingerFuture = null;
+        }
+        pendingSubs.clear();
+        pendingUnsubs.clear();
+        for (int id : lingering.keySet()) {
+            sedona.getPoller().remove(id);
+        }
+        lingering.clear();
+        subscribed.set(0);
+    }
+
+    /**
+     * @return Amount of components currently subscribed to.
+     */
+    public int getSubscribedCount() {
+        return subscribed.get();
+    }
+
+    /**
+     * Immediately sends all pending requests to the server.
+     */
+    public void flush() {
+        SoxComponent[] subs;
+        SoxComponent[] unsubs;
+        synchronized (this) {
+            future = null;
+            subs = pendingSubs.toArray(new SoxComponent[pendingSubs.size()]);
+            unsubs = pendingUnsubs.toArray(new SoxComponent[pendingUnsubs.size()]);
+            pendingSubs.clear();
+            pendingUnsubs.clear();
+        }
+
+        SoxClient client = sedona.getClient();
+        if (client == null) {
+            return;
+        }
+
+        // The state of a component may have changed while it was pending
+        subs = filter(subs, false);
+        unsubs = filter(unsubs, true);
+
+        for (int i = 0; i < unsubs.length; i += MAX_BATCH) {
+            int end = Math.min(unsubs.length, i + MAX_BATCH);
+            SoxComponent[] batch = Arrays.copyOfRange(unsubs, i, end);
+            try {
+                long start = System.nanoTime();
+                client.unsubscribe(batch, MASK);
+                sedona.getMetrics().record(Metrics.Op.UNSUBSCRIBE, start);
+                subscribed.addAndGet(-batch.length);
+                LOGGER.debug("Unsubscribed from {} components", batch.length);
+            } catch (Exception e) {
+                LOGGER.error("Failed to unsubscribe", e);
+            }
+        }
+
+        for (int i = 0; i < subs.length; i += MAX_BATCH) {
+            int end = Math.min(subs.length, i + MAX_BATCH);
+            SoxComponent[] batch = Arrays.copyOfRange(subs, i, end);
+            try {
+                long start = System.nanoTime();
+                client.subscribeAsync(batch, MASK);
+                sedona.getMetrics().record(Metrics.Op.SUBSCRIBE, start);
+                subscribed.addAndGet(batch.length);
+                LOGGER.debug("Subscribed to {} components", batch.length);
+            } catch (Exception e) {
+                LOGGER.error("Failed to subscribe", e);
+            }
+        }
+    }
+
+    private static SoxComponent[] filter(SoxComponent[] comps,
+                                         boolean subscribed) {
+        int count = 0;
+        for (SoxComponent c : comps) {
+            if (isSubscribed(c) == subscribed) {
+                comps[count++] = c;
+            }
+        }
+        return Arrays.copyOf(comps, count);
+    }
+
+    private static boolean isSubscribed(SoxComponent comp) {
+        int mask = SoxComponent.RUNTIME;
+        return (comp.subscription() & mask) == mask;
+    }
+
+    private void scheduleExpire(long delay) {
+        lingerFuture = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Unsubscribes the components that lingered long enough. Components
+     * are kept in release order so the first young one ends the scan.
+     */
+    private synchronized void expire() {
+        lingerFuture = null;
+        long now = System.currentTimeMillis();
+        Iterator<Lingering> it = lingering.values().iterator();
+        while (it.hasNext()) {
+            Lingering l = it.next();
+            long left = l.since + linger - now;
+            if (left > 0) {
+                scheduleExpire(left);
+                return;
+            }
+            it.remove();
+            drop(l.component);
+        }
+    }
+
+    private void drop(SoxComponent component) {
+        sedona.getPoller().remove(component.id());
+        unsubscribe(component);
+    }
+
+    private void schedule() {
+        if (future != null) {
+            return;
+        }
+        future = sedona.getExecutor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, WINDOW, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Lingering {
+
+        private final SoxComponent component;
+        private final long since;
+
+        Lingering(SoxComponent component, long since) {
+            this.component = component;
+            this.since = since;
+        }
+    }
+}
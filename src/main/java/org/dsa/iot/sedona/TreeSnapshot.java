@@ -0,0 +1,340 @@
+package org.dsa.iot.sedona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Slot;
+import sedona.sox.KitVersion;
+import sedona.sox.SoxComponent;
+import sedona.sox.VersionInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of the component tree of a server. Snapshots
+ * are keyed by the platform ID and kit checksums of the server so they
+ * are discarded when the server is updated.
+ */
+public class TreeSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TreeSnapshot.class);
+    private static final int MAGIC = 0x53445453;
+    private static final int VERSION = 3;
+
+    private final String key;
+    private final List<Entry> entries;
+    private final Map<Integer, Entry> byId = new HashMap<>();
+
+    private TreeSnapshot(String key, List<Entry> entries) {
+        this.key = key;
+        this.entries = entries;
+        for (Entry e : entries) {
+            byId.put(e.id, e);
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return Components in depth first order, starting with the app.
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return IDs of every component in the snapshot.
+     */
+    public int[] getIds() {
+        int[] ids = new int[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.get(i).id;
+        }
+        return ids;
+    }
+
+    /**
+     * @param id ID of a component.
+     * @param type Qualified name of the type of the component.
+     * @return Encoded config values of the component, or {@code null} if
+     *         they are unknown or the ID now belongs to another type.
+     */
+    public String[] getValues(int id, String type) {
+        Entry e = byId.get(id);
+        if (e == null || !e.type.equals(type)) {
+            return null;
+        }
+        return e.values;
+    }
+
+    /**
+     * Creates the key of a server from its version information.
+     *
+     * @param info Version information of the server.
+     * @return Snapshot key.
+     */
+    public static String key(VersionInfo info) {
+        String[] kits = new String[info.kits.length];
+        for (int i = 0; i < kits.length; i++) {
+            KitVersion kit = info.kits[i];
+            kits[i] = kit.name + ':' + Integer.toHexString(kit.checksum);
+        }
+        Arrays.sort(kits);
+
+        StringBuilder sb = new StringBuilder(info.platformId);
+        for (String kit : kits) {
+            sb.append(';').append(kit);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Captures the loaded component tree. Only components that are
+     * already in the client cache are captured. Config values are only
+     * captured for components that are subscribed to config changes,
+     * the others keep the values of the previous snapshot.
+     *
+     * @param key Key of the server.
+     * @param root Root component of the app.
+     * @param previous Previous snapshot of the server, can be
+     *                 {@code null}.
+     * @return Captured snapshot.
+     */
+    public static TreeSnapshot capture(String key, SoxComponent root,
+                                       TreeSnapshot previous) {
+        List<Entry> entries = new ArrayList<>();
+        capture(entries, root, previous);
+        return new TreeSnapshot(key, entries);
+    }
+
+    private static void capture(List<Entry> entries, SoxComponent comp,
+                                TreeSnapshot previous) {
+        int[] children = comp.childrenIds();
+        if (children == null) {
+            children = new int[0];
+        }
+
+        String[] values = null;
+        if ((comp.subscription() & SoxComponent.CONFIG) != 0) {
+            Slot[] slots = comp.type.slots;
+            values = new String[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                Slot slot = slots[i];
+                if (slot.isConfig()) {
+                    sedona.Value val = comp.get(slot);
+                    if (val != null) {
+                        values[i] = val.encodeString();
+                    }
+                }
+            }
+        } else if (previous != null) {
+            values = previous.getValues(comp.id(), comp.type.qname);
+        }
+
+        entries.add(new Entry(comp.id(), comp.parentId(), comp.name(),
+                comp.type.qname, children, values));
+
+        for (int id : children) {
+            SoxComponent child = comp.client().cache(id);
+            if (child != null) {
+                capture(entries, child, previous);
+            }
+        }
+    }
+
+    public void write(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(entries.size());
+            // SOX ids are u2, the app has the parent 0xFFFF
+            for (Entry e : entries) {
+                out.writeShort(e.id);
+                out.writeShort(e.parent);
+                out.writeUTF(e.name);
+                out.writeUTF(e.type);
+                out.writeShort(e.children.length);
+                for (int id : e.children) {
+                    out.writeShort(id);
+                }
+                if (e.values == null) {
+                    out.writeShort(0);
+                } else {
+                    out.writeShort(e.values.length);
+                    for (String v : e.values) {
+                        out.writeBoolean(v != null);
+                        if (v != null) {
+                            out.writeUTF(v);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to replace " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param file File of the snapshot.
+     * @return Read snapshot, or {@code null} if it doesn't exist or is
+     *         corrupt.
+     */
+    public static TreeSnapshot read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String key = in.readUTF();
+            int size = in.readInt();
+            List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int id = in.readUnsignedShort();
+                int parent = in.readUnsignedShort();
+                String name = in.readUTF();
+                String type = in.readUTF();
+                int[] children = new int[in.readUnsignedShort()];
+                for (int j = 0; j < children.length; j++) {
+                    children[j] = in.readUnsignedShort();
+                }
+                int count = in.readUnsignedShort();
+                String[] values = null;
+                if (count > 0) {
+                    values = new String[count];
+                    for (int j = 0; j < count; j++) {
+                        if (in.readBoolean()) {
+                            values[j] = in.readUTF();
+                        }
+                    }
+                }
+                entries.add(new Entry(id, parent, name, type, children, values));
+            }
+            return new TreeSnapshot(key, entries);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TreeSnapshot)) {
+            return false;
+        }
+        TreeSnapshot other = (TreeSnapshot) o;
+        return key.equals(other.key) && entries.equals(other.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * key.hashCode() + entries.hashCode();
+    }
+
+    public static class Entry {
+
+        private final int id;
+        private final int parent;
+        private final String name;
+        private final String type;
+        private final int[] children;
+        private final String[] values;
+
+        Entry(int id, int parent, String name, String type,
+              int[] children, String[] values) {
+            this.id = id;
+            this.parent = parent;
+            this.name = name;
+            this.type = type;
+            this.children = children;
+            this.values = values;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getParent() {
+            return parent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Qualified name of the component type.
+         */
+        public String getType() {
+            return type;
+        }
+
+        public int[] getChildren() {
+            return children;
+        }
+
+        /**
+         * @return Encoded config values indexed by slot ID, or
+         *         {@code null} if they are unknown.
+         */
+        public String[] getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return id == other.id
+                    && parent == other.parent
+                    && name.equals(other.name)
+                    && type.equals(other.type)
+                    && Arrays.equals(children, other.children)
+                    && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + name.hashCode();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.dsa.iot.sedona;
+
+import sedona.Slot;
+import sedona.Type;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the compiled slot metadata of every sedona type. The cache is
+ * shared between all servers of the link since types are identified by
+ * their qualified name and kit checksum.
+ */
+public class TypeCache {
+
+    private static final ConcurrentMap<String, SlotInfo[]> CACHE
+                                            = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the compiled slots of a type, compiling them if necessary.
+     *
+     * @param type Type to get the slots for.
+     * @return Compiled slots in slot order.
+     */
+    public static SlotInfo[] getSlots(Type type) {
+        String key = key(type);
+        SlotInfo[] infos = CACHE.get(key);
+        if (infos == null) {
+            Slot[] slots = type.slots;
+            infos = new SlotInfo[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                infos[i] = new SlotInfo(slots[i]);
+            }
+            SlotInfo[] prev = CACHE.putIfAbsent(key, infos);
+            if (prev != null) {
+                infos = prev;
+            }
+        }
+        return infos;
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static String key(Type type) {
+        if (type.kit == null) {
+            return type.qname;
+        }
+        return type.qname + '@' + Integer.toHexString(type.kit.checksum);
+    }
+}
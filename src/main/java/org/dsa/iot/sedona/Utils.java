@@ -8,6 +8,8 @@ import sedona.Float;
 import sedona.Long;
 import sedona.Short;
 
+import java.util.regex.Pattern;
+
 /**
  * @author Samuel Grenier
  */
@@ -95,4 +97,21 @@ public class Utils {
         return value;
     }
 
+    /**
+     * Compiles a pattern supporting {@code *} and {@code ?} wildcards.
+     */
+    public static Pattern glob(String glob) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                sb.append(".*");
+            } else if (c == '?') {
+                sb.append('.');
+            } else {
+                sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(sb.toString());
+    }
+
 }
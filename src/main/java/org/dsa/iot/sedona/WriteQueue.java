@@ -0,0 +1,205 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Slot;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Asynchronous write pipeline of a server. Pending writes are coalesced
+ * per slot so only the latest value of a slot is sent to the server. A
+ * write that was replaced completes along with the one replacing it.
+ */
+public class WriteQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteQueue.class);
+
+    /**
+     * Default maximum amount of slots with a pending write.
+     */
+    public static final int DEFAULT_MAX = 1000;
+
+    private final Map<Long, Write> pending = new LinkedHashMap<>();
+    private final ExecutorService executor;
+    private final Sedona sedona;
+    private final int max;
+
+    private boolean draining;
+
+    public WriteQueue(Sedona sedona, String name, int max) {
+        this.sedona = sedona;
+        this.max = max;
+        ThreadFactory factory = ServerExecutor.newThreadFactory("sedona-write-" + name);
+        this.executor = Executors.newSingleThreadExecutor(factory);
+    }
+
+    /**
+     * Queues a write. A pending write to the same slot is replaced.
+     *
+     * @param comp Component to write to.
+     * @param info Slot to write to.
+     * @param value Value to write.
+     * @param node Node of the slot, reverted if the write fails. Can be
+     *             {@code null} if the slot has no node.
+     * @return Future completing once the write was sent, failing with
+     *         the error of the server, or {@code null} if the write was
+     *         rejected.
+     */
+    public synchronized Future<Void> enqueue(SoxComponent comp,
+                                             SlotInfo info,
+                                             sedona.Value value,
+                                             Node node) {
+        Slot slot = info.getSlot();
+        Long key = ((long) comp.id() << 32) | slot.id;
+        Write write = new Write(comp, info, value, node);
+        Write prev = pending.put(key, write);
+        if (prev == null && pending.size() > max) {
+            pending.remove(key);
+            LOGGER.warn("Write queue full, rejecting write to {}", write.describe());
+            return null;
+        } else if (prev != null) {
+            write.replaced.add(prev);
+            write.replaced.addAll(prev.replaced);
+            prev.replaced.clear();
+        }
+        if (node != null) {
+            // The node shows the written value until the server reports back
+            sedona.getCovFilter().invalidate(node);
+        }
+        if (!draining) {
+            draining = true;
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+            } catch (RuntimeException e) {
+                draining = false;
+                pending.remove(key);
+                return null;
+            }
+        }
+        return write.result;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Drops all pending writes, their futures are cancelled.
+     */
+    public synchronized void clear() {
+        for (Write w : pending.values()) {
+            w.cancel();
+        }
+        pending.clear();
+    }
+
+    public void stop() {
+        clear();
+        executor.shutdownNow();
+    }
+
+    private void drain() {
+        while (true) {
+            Write write;
+            synchronized (this) {
+                Iterator<Write> it = pending.values().iterator();
+                if (!it.hasNext()) {
+                    draining = false;
+                    return;
+                }
+                write = it.next();
+                it.remove();
+            }
+            write.send();
+        }
+    }
+
+    private class Write {
+
+        private final SoxComponent comp;
+        private final SlotInfo info;
+        private final sedona.Value value;
+        private final Node node;
+        private final List<Write> replaced = new ArrayList<>();
+        private final FutureTask<Void> result;
+        private Exception error;
+
+        Write(SoxComponent comp, SlotInfo info,
+              sedona.Value value, Node node) {
+            this.comp = comp;
+            this.info = info;
+            this.value = value;
+            this.node = node;
+            this.result = new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    if (error != null) {
+                        throw error;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        void send() {
+            Exception error = null;
+            try {
+                SoxClient client = sedona.getClient();
+                if (client == null) {
+                    throw new IllegalStateException("Not connected");
+                }
+                long start = System.nanoTime();
+                client.write(comp.id(), info.getSlot(), value);
+                sedona.getMetrics().record(Metrics.Op.WRITE, start);
+            } catch (Exception e) {
+                LOGGER.error("Error setting value on {}", describe(), e);
+                if (node != null) {
+                    node.setValue(info.toDsa(comp.get(info.getSlot())));
+                }
+                error = e;
+            }
+            complete(error);
+            for (Write w : replaced) {
+                w.complete(error);
+            }
+        }
+
+        void complete(Exception error) {
+            this.error = error;
+            result.run();
+        }
+
+        void cancel() {
+            result.cancel(false);
+            for (Write w : replaced) {
+                w.result.cancel(false);
+            }
+        }
+
+        String describe() {
+            if (node != null) {
+                return node.getPath();
+            }
+            return comp.name() + "." + info.getName();
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package org.dsa.iot.sedona;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Buf;
+import sedona.Depend;
+import sedona.Facets;
+import sedona.Float;
+import sedona.Int;
+import sedona.KitPart;
+import sedona.Long;
+import sedona.Schema;
+import sedona.Slot;
+import sedona.Type;
+import sedona.Value;
+import sedona.dasp.DaspAcceptor;
+import sedona.dasp.DaspMessage;
+import sedona.dasp.DaspSession;
+import sedona.dasp.DaspSocket;
+import sedona.manifest.KitManifest;
+import sedona.manifest.ManifestDb;
+import sedona.manifest.SlotManifest;
+import sedona.manifest.TypeManifest;
+import sedona.sox.SoxComponent;
+import sedona.util.Version;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates a Sedona device on a local UDP port. The device serves a
+ * synthetic app over SOX and changes the runtime values of its points
+ * at a configurable rate.
+ * <p>
+ * The app consists of folders holding up to 100 points. Every point has
+ * a writable {@code setpoint}, a {@code stamp} holding the
+ * {@link System#nanoTime()} of the last change, a configurable amount
+ * of {@code out} slots and a {@code reset} action. The stamp allows an
+ * in-process harness to measure the latency of every change.
+ */
+public class DeviceSimulator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceSimulator.class);
+
+    /**
+     * Amount of points per folder.
+     */
+    private static final int FOLDER_SIZE = 100;
+
+    /**
+     * Interval in milliseconds between change generator runs.
+     */
+    private static final long TICK = 10;
+
+    private static final String[] PRIMITIVES = {
+            "void", "bool", "byte", "short", "int",
+            "long", "float", "double", "Buf"
+    };
+
+    private static final int NO_PARENT = 0xFFFF;
+
+    private final Random random = new Random();
+    private final AtomicLong changes = new AtomicLong();
+    private final String user;
+    private final String pass;
+    private final int port;
+    private final double loss;
+
+    private final Schema schema;
+    private final Type folderType;
+    private final Type pointType;
+    private final Type[] types;
+    private final String[] names;
+    private final int[] parents;
+    private final int[][] children;
+    private final Value[][] values;
+    private final int firstPoint;
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> generator;
+    private LossyInterface iface;
+    private DaspSocket socket;
+    private Thread receiver;
+    private double pending;
+
+    /**
+     * @param port UDP port to serve on.
+     * @param user User name clients authenticate with.
+     * @param pass Password clients authenticate with.
+     * @param points Amount of points in the app.
+     * @param slots Amount of {@code out} slots per point.
+     * @param loss Probability between 0 and 1 that a packet is dropped.
+     * @throws Exception The schema could not be created.
+     */
+    public DeviceSimulator(int port, String user, String pass,
+                           int points, int slots, double loss)
+                                                throws Exception {
+        int folders = (points + FOLDER_SIZE - 1) / FOLDER_SIZE;
+        if (folders > 255) {
+            throw new IllegalArgumentException("Too many points: " + points);
+        }
+        if (slots < 1 || slots > 64) {
+            throw new IllegalArgumentException("slots must be in [1, 64]");
+        }
+        this.port = port;
+        this.user = user;
+        this.pass = pass;
+        this.loss = loss;
+        this.schema = schema(slots);
+        this.folderType = schema.type("sys::Folder");
+        this.pointType = schema.type("sys::Point");
+
+        int size = 1 + folders + points;
+        this.types = new Type[size];
+        this.names = new String[size];
+        this.parents = new int[size];
+        this.children = new int[size][];
+        this.values = new Value[size][];
+
+        int id = 0;
+        int app = add(id++, folderType, "app", NO_PARENT);
+        children[app] = new int[folders];
+        this.firstPoint = 1 + folders;
+        int point = firstPoint;
+        for (int f = 0; f < folders; f++) {
+            int folder = add(id++, folderType, "folder" + f, app);
+            children[app][f] = folder;
+
+            int count = Math.min(FOLDER_SIZE, points - f * FOLDER_SIZE);
+            children[folder] = new int[count];
+            for (int p = 0; p < count; p++) {
+                children[folder][p] = add(point, pointType, "point" + p, folder);
+                point++;
+            }
+        }
+    }
+
+    /**
+     * Runs a simulator until the process is killed. Accepts the same
+     * {@code -name value} options as the {@link LoadTest}.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = (int) LoadTest.option(args, "port", 1876);
+        int points = (int) LoadTest.option(args, "points", 1000);
+        int slots = (int) LoadTest.option(args, "slots", 4);
+        double loss = LoadTest.option(args, "loss", 0);
+        DeviceSimulator sim = new DeviceSimulator(port, "admin", "",
+                                                  points, slots, loss);
+        sim.start();
+        sim.setChangeRate(LoadTest.option(args, "rate", 1000));
+        Thread.sleep(java.lang.Long.MAX_VALUE);
+    }
+
+    /**
+     * @return Schema served by the device.
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return Amount of value changes generated so far.
+     */
+    public long getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * @return Amount of packets dropped so far.
+     */
+    public long getDropped() {
+        LossyInterface iface = this.iface;
+        return iface == null ? 0 : iface.getDropped();
+    }
+
+    /**
+     * Opens the DASP socket and starts serving requests.
+     *
+     * @throws Exception The socket could not be opened.
+     */
+    public synchronized void start() throws Exception {
+        final byte[] credentials = credentials(user, pass);
+        DaspAcceptor acceptor = new DaspAcceptor() {
+            @Override
+            public byte[] credentials(String name) {
+                return user.equals(name) ? credentials : null;
+            }
+        };
+        socket = new DaspSocket(acceptor, DaspSocket.SOCKET_QUEUING) {
+        };
+        iface = new LossyInterface(port, loss);
+        socket.addInterface(iface);
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                ServerExecutor.newThreadFactory("simulator-" + port));
+
+        receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "simulator-receiver-" + port);
+        receiver.setDaemon(true);
+        receiver.start();
+        LOGGER.info("Simulating {} points on port {}", values.length - firstPoint, port);
+    }
+
+    /**
+     * Changes the rate at which values change.
+     *
+     * @param perSecond Amount of value changes per second across all
+     *                  points, or 0 to stop changing values.
+     */
+    public synchronized void setChangeRate(final double perSecond) {
+        if (generator != null) {
+            generator.cancel(false);
+            generator = null;
+        }
+        if (perSecond <= 0) {
+            return;
+        }
+        generator = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                pending += perSecond * TICK / 1000;
+                for (; pending >= 1; pending--) {
+                    change();
+                }
+            }
+        }, TICK, TICK, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes all sessions and the socket.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+        if (receiver != null) {
+            receiver.interrupt();
+            receiver = null;
+        }
+    }
+
+    private int add(int id, Type type, String name, int parent) {
+        types[id] = type;
+        names[id] = name;
+        parents[id] = parent;
+        children[id] = new int[0];
+        Slot[] slots = type.slots;
+        values[id] = new Value[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].isProp()) {
+                values[id][i] = slots[i].def();
+            }
+        }
+        return id;
+    }
+
+    private void change() {
+        int id = firstPoint + random.nextInt(values.length - firstPoint);
+        int slot = 2 + random.nextInt(values[id].length - 3);
+        synchronized (values[id]) {
+            values[id][slot] = Float.make(random.nextFloat() * 100);
+            values[id][1] = Long.make(System.nanoTime());
+        }
+        changes.incrementAndGet();
+        publish(id, SoxComponent.RUNTIME);
+    }
+
+    private void receive() {
+        while (!Thread.currentThread().isInterrupted()) {
+            DaspSocket socket = this.socket;
+            if (socket == null || socket.isClosed()) {
+                return;
+            }
+            try {
+                DaspMessage msg = socket.receive(1000);
+                if (msg != null) {
+                    handle(msg.session(), new Buf(msg.payload()));
+                }
+            } catch (Exception e) {
+                if (this.socket != null) {
+                    LOGGER.warn("Failed to handle request", e);
+                }
+            }
+        }
+    }
+
+    private void handle(DaspSession session, Buf req) throws Exception {
+        int cmd = req.u1();
+        int replyNum = req.u1();
+        Buf res = new Buf();
+        res.u1(cmd & ~0x20);
+        res.u1(replyNum);
+        switch (cmd) {
+            case 'v':
+                res.u1(schema.kits.length);
+                for (sedona.Kit kit : schema.kits) {
+                    res.str(kit.name);
+                    res.i4(kit.checksum);
+                }
+                break;
+            case 'y':
+                res.str("simulator");
+                res.u1(0);
+                for (sedona.Kit kit : schema.kits) {
+                    res.str(kit.manifest.version.toString());
+                }
+                res.u1(1);
+                res.str("soxVer");
+                res.str("1.1");
+                break;
+            case 'c': {
+                int id = req.u2();
+                int what = req.u1();
+                if (!exists(id)) {
+                    error(session, replyNum, "Invalid component: " + id);
+                    return;
+                }
+                encode(res, id, what);
+                break;
+            }
+            case 'r': {
+                int id = req.u2();
+                int slot = req.u1();
+                if (!exists(id) || slot >= values[id].length) {
+                    error(session, replyNum, "Invalid slot: " + id + "." + slot);
+                    return;
+                }
+                res.u2(id);
+                res.u1(slot);
+                res.u1(types[id].slots[slot].type.id);
+                synchronized (values[id]) {
+                    values[id][slot].encodeBinary(res);
+                }
+                break;
+            }
+            case 's': {
+                int mask = req.u1();
+                int count = req.u1();
+                Subscriber sub = subscriber(session);
+                if (count == 0) {
+                    // All tree events, the simulated tree never changes
+                    break;
+                }
+                int[] ids = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = req.u2();
+                    if (exists(ids[i])) {
+                        sub.masks[ids[i]] |= mask;
+                    }
+                }
+                res.u1(count);
+                send(session, res);
+                for (int id : ids) {
+                    if (exists(id)) {
+                        event(session, id, mask);
+                    }
+                }
+                return;
+            }
+            case 'u': {
+                int mask = req.u1();
+                int count = req.u1();
+                Subscriber sub = subscriber(session);
+                for (int i = 0; i < count; i++) {
+                    int id = req.u2();
+                    if (exists(id)) {
+                        sub.masks[id] &= ~mask;
+                    }
+                }
+                break;
+            }
+            case 'w': {
+                int id = req.u2();
+                int slot = req.u1();
+                if (!exists(id) || slot >= values[id].length
+                        || !types[id].slots[slot].isProp()) {
+                    error(session, replyNum, "Invalid slot: " + id + "." + slot);
+                    return;
+                }
+                Slot s = types[id].slots[slot];
+                synchronized (values[id]) {
+                    values[id][slot] = values[id][slot].decodeBinary(req);
+                }
+                send(session, res);
+                publish(id, s.isConfig() ? SoxComponent.CONFIG : SoxComponent.RUNTIME);
+                return;
+            }
+            case 'i':
+                break;
+            default:
+                error(session, replyNum, "Unsupported command: " + (char) cmd);
+                return;
+        }
+        send(session, res);
+    }
+
+    private boolean exists(int id) {
+        return id >= 0 && id < types.length && types[id] != null;
+    }
+
+    /**
+     * Encodes a component in the format of a SOX update response.
+     */
+    private void encode(Buf buf, int id, int what) {
+        buf.u2(id);
+        buf.u1(what);
+        Type type = types[id];
+        switch (what) {
+            case 't':
+                buf.u1(type.kit.id);
+                buf.u1(type.id);
+                buf.str(names[id]);
+                buf.u2(parents[id]);
+                buf.u1(0xFF);
+                buf.u1(children[id].length);
+                for (int child : children[id]) {
+                    buf.u2(child);
+                }
+                break;
+            case 'c':
+            case 'r':
+                Slot[] slots = type.slots;
+                synchronized (values[id]) {
+                    for (int i = 0; i < slots.length; i++) {
+                        Slot s = slots[i];
+                        if (s.isProp() && (what == 'c') == s.isConfig()) {
+                            values[id][i].encodeBinary(buf);
+                        }
+                    }
+                }
+                break;
+            case 'l':
+                buf.u2(0xFFFF);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown category: " + (char) what);
+        }
+    }
+
+    /**
+     * Sends the events of a component to every session subscribed to it.
+     */
+    private void publish(int id, int mask) {
+        DaspSocket socket = this.socket;
+        if (socket == null) {
+            return;
+        }
+        for (DaspSession session : socket.sessions()) {
+            Object data = session.userData;
+            if (data instanceof Subscriber) {
+                int subscribed = ((Subscriber) data).masks[id] & mask;
+                if (subscribed != 0) {
+                    event(session, id, subscribed);
+                }
+            }
+        }
+    }
+
+    private void event(DaspSession session, int id, int mask) {
+        if ((mask & SoxComponent.TREE) != 0) {
+            event(session, id, 't');
+        }
+        if ((mask & SoxComponent.CONFIG) != 0) {
+            event(session, id, 'c');
+        }
+        if ((mask & SoxComponent.RUNTIME) != 0) {
+            event(session, id, 'r');
+        }
+        if ((mask & SoxComponent.LINKS) != 0) {
+            event(session, id, 'l');
+        }
+    }
+
+    private void event(DaspSession session, int id, char what) {
+        Buf buf = new Buf();
+        buf.u1('e');
+        buf.u1(0xFF);
+        encode(buf, id, what);
+        send(session, buf);
+    }
+
+    private void error(DaspSession session, int replyNum, String cause) {
+        Buf buf = new Buf();
+        buf.u1('!');
+        buf.u1(replyNum);
+        buf.str(cause);
+        send(session, buf);
+    }
+
+    private static void send(DaspSession session, Buf buf) {
+        try {
+            session.send(buf.bytes, 0, buf.size);
+        } catch (Exception e) {
+            LOGGER.debug("Failed to send to session {}", session.id, e);
+        }
+    }
+
+    private synchronized Subscriber subscriber(DaspSession session) {
+        if (!(session.userData instanceof Subscriber)) {
+            session.userData = new Subscriber(types.length);
+        }
+        return (Subscriber) session.userData;
+    }
+
+    private static byte[] credentials(String user, String pass) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA");
+        String s = user + ':' + pass;
+        return digest.digest(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a schema with a synthetic sys kit containing the
+     * primitives, a folder and a point type. The manifest is saved to
+     * the manifest database so clients in the same Sedona home can load
+     * the schema.
+     *
+     * @param slots Amount of {@code out} slots of the point type.
+     * @return Schema of the simulated app.
+     * @throws Exception The schema could not be created.
+     */
+    public static Schema schema(int slots) throws Exception {
+        KitManifest kit = new KitManifest("sys");
+        kit.checksum = 0x51d000 | slots;
+        kit.version = Version.parse("1.0");
+        kit.depends = new Depend[0];
+
+        TypeManifest[] types = new TypeManifest[PRIMITIVES.length + 2];
+        for (int i = 0; i < PRIMITIVES.length; i++) {
+            types[i] = new TypeManifest(kit, i, PRIMITIVES[i],
+                                        new Facets(), null, 0, 0);
+            types[i].slots = new SlotManifest[0];
+        }
+
+        int id = PRIMITIVES.length;
+        TypeManifest folder = new TypeManifest(kit, id, "Folder",
+                                               new Facets(), null, 0, 0);
+        folder.slots = new SlotManifest[] {
+                new SlotManifest(folder, 0, "meta", new Facets(), "int",
+                                 Slot.CONFIG, Int.make(1))
+        };
+        types[id++] = folder;
+
+        TypeManifest point = new TypeManifest(kit, id, "Point",
+                                              new Facets(), null, 0, 0);
+        SlotManifest[] pointSlots = new SlotManifest[slots + 3];
+        pointSlots[0] = new SlotManifest(point, 0, "setpoint", new Facets(),
+                                         "float", Slot.CONFIG, Float.make(0));
+        pointSlots[1] = new SlotManifest(point, 1, "stamp", new Facets(),
+                                         "long", 0, Long.make(0));
+        for (int i = 0; i < slots; i++) {
+            pointSlots[i + 2] = new SlotManifest(point, i + 2, "out" + i,
+                                                 new Facets(), "float", 0,
+                                                 Float.make(0));
+        }
+        pointSlots[slots + 2] = new SlotManifest(point, slots + 2, "reset",
+                                                 new Facets(), "void",
+                                                 Slot.ACTION, null);
+        point.slots = pointSlots;
+        types[id] = point;
+        kit.types = types;
+
+        if (!ManifestDb.save(kit)) {
+            throw new IOException("Failed to save manifest");
+        }
+        return Schema.load(new KitPart[] { kit.part() });
+    }
+
+    /**
+     * Subscription state of a client session.
+     */
+    private static class Subscriber {
+
+        private final byte[] masks;
+
+        Subscriber(int size) {
+            this.masks = new byte[size];
+        }
+    }
+}
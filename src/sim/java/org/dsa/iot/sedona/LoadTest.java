@@ -0,0 +1,348 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.dsa.iot.dslink.node.SubscriptionManager;
+import org.dsa.iot.dslink.node.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sedona.Slot;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+import sedona.sox.SoxComponentListener;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * End-to-end load test driving a {@link Sedona} server against a
+ * {@link DeviceSimulator} in the same process.
+ * <p>
+ * The test measures the time to connect and build the tree, the time
+ * until the first and the last subscribed point reported a value, the
+ * latency between a value change on the device and the update of the
+ * DSA node, and the round trip of writes through the write queue.
+ * <p>
+ * Options are passed as {@code -name value} pairs:
+ * <ul>
+ *     <li>{@code points} Amount of simulated points (1000)</li>
+ *     <li>{@code slots} Amount of changing slots per point (4)</li>
+ *     <li>{@code rate} Value changes per second (1000)</li>
+ *     <li>{@code writes} Writes per second (10)</li>
+ *     <li>{@code loss} Packet loss probability between 0 and 1 (0)</li>
+ *     <li>{@code duration} Duration of the measurement in seconds (30)</li>
+ *     <li>{@code port} UDP port of the simulator (21876)</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final String USER = "admin";
+    private static final String PASS = "";
+
+    /**
+     * Time in seconds to wait for the initial values.
+     */
+    private static final long VALUE_TIMEOUT = 60;
+
+    private final Histogram changes = new Histogram();
+    private final Histogram writes = new Histogram();
+    private final Map<Integer, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final AtomicLong firstValue = new AtomicLong();
+    private final Random random = new Random();
+
+    private final int points;
+    private final int slots;
+    private final double rate;
+    private final double writeRate;
+    private final double loss;
+    private final long duration;
+    private final int port;
+
+    private volatile long measureStart = Long.MAX_VALUE;
+    private AtomicLongArray valueSeen;
+    private CountDownLatch allValues;
+
+    private LoadTest(String[] args) {
+        this.points = (int) option(args, "points", 1000);
+        this.slots = (int) option(args, "slots", 4);
+        this.rate = option(args, "rate", 1000);
+        this.writeRate = option(args, "writes", 10);
+        this.loss = option(args, "loss", 0);
+        this.duration = (long) option(args, "duration", 30);
+        this.port = (int) option(args, "port", 21876);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("sedona.home") == null) {
+            String home = Files.createTempDirectory("sedona").toString();
+            System.setProperty("sedona.home", home);
+        }
+        new LoadTest(args).run();
+        System.exit(0);
+    }
+
+    /**
+     * Reads a numeric option passed as {@code -name value}.
+     *
+     * @param args Command line arguments.
+     * @param name Name of the option.
+     * @param def Default value of the option.
+     * @return Value of the option.
+     */
+    static double option(String[] args, String name, double def) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-" + name)) {
+                return Double.parseDouble(args[i + 1]);
+            }
+        }
+        return def;
+    }
+
+    private void run() throws Exception {
+        DeviceSimulator sim = new DeviceSimulator(port, USER, PASS,
+                                                  points, slots, loss);
+        sim.start();
+
+        Node root = new Node("loadtest", null, null);
+        root.setRoConfig("url", new Value("127.0.0.1"));
+        root.setRoConfig("port", new Value(port));
+        root.setRoConfig("username", new Value(USER));
+        root.setRoConfig("treeCache", new Value(false));
+        root.setPassword(PASS.toCharArray());
+
+        Sedona server = new Sedona(root, new SubscriptionManager(null));
+        try {
+            run(sim, server, root);
+        } finally {
+            server.destroy();
+            sim.stop();
+        }
+    }
+
+    private void run(DeviceSimulator sim, Sedona server, Node root)
+                                                    throws Exception {
+        long start = System.nanoTime();
+        server.connect(true);
+        awaitLane(server);
+        long connected = System.nanoTime();
+        LOGGER.info("Connected and built tree in {}ms", millis(start, connected));
+
+        SoxClient client = server.getClient();
+        List<SoxComponent> comps = instrument(client);
+        valueSeen = new AtomicLongArray(maxId(comps) + 1);
+        allValues = new CountDownLatch(comps.size());
+
+        long subscribing = System.nanoTime();
+        // Referenced like a DSA subscriber so reconnects resubscribe
+        for (SoxComponent c : comps) {
+            server.getSubscriptions().acquire(c, "stamp");
+        }
+        if (!allValues.await(VALUE_TIMEOUT, TimeUnit.SECONDS)) {
+            LOGGER.warn("Only {} of {} points reported a value",
+                    comps.size() - allValues.getCount(), comps.size());
+        }
+        long subscribed = System.nanoTime();
+        LOGGER.info("First value after {}ms, all values after {}ms",
+                millis(subscribing, firstValue.get()),
+                millis(subscribing, subscribed));
+
+        measureStart = System.nanoTime();
+        sim.setChangeRate(rate);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(duration);
+        long writeInterval = 0;
+        long nextWrite = Long.MAX_VALUE;
+        if (writeRate > 0) {
+            writeInterval = (long) (TimeUnit.SECONDS.toNanos(1) / writeRate);
+            nextWrite = measureStart;
+        }
+        int reconnects = 0;
+        float value = 0;
+        while (System.nanoTime() < end) {
+            if (server.getClient() != client) {
+                // Components of the new session need to be instrumented
+                client = reconnected(server);
+                comps = instrument(client);
+                reconnects++;
+                continue;
+            }
+            long now = System.nanoTime();
+            if (now >= nextWrite) {
+                write(server, root, comps, value++);
+                nextWrite += writeInterval;
+            }
+            long sleep = Math.min(nextWrite, end) - System.nanoTime();
+            if (sleep > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        }
+        sim.setChangeRate(0);
+
+        report(sim, client, reconnects);
+    }
+
+    /**
+     * Waits for the tasks currently queued on the server lane, such as
+     * building the tree.
+     */
+    private static void awaitLane(Sedona server) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        server.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private static SoxClient reconnected(Sedona server)
+                                        throws InterruptedException {
+        SoxClient client;
+        while ((client = server.getClient()) == null) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        awaitLane(server);
+        LOGGER.info("Reconnected");
+        return client;
+    }
+
+    /**
+     * Wraps the listeners set by the server on every point to measure
+     * the time until the nodes were updated.
+     *
+     * @return Points of the app.
+     */
+    private List<SoxComponent> instrument(SoxClient client) {
+        List<SoxComponent> comps = new ArrayList<>();
+        collect(client, client.cache(0), comps);
+        for (SoxComponent c : comps) {
+            final SoxComponentListener delegate = c.listener;
+            final Slot stamp = c.type.slot("stamp");
+            final Slot setpoint = c.type.slot("setpoint");
+            c.listener = new SoxComponentListener() {
+                @Override
+                public void changed(SoxComponent comp, int mask) {
+                    if (delegate != null) {
+                        delegate.changed(comp, mask);
+                    }
+                    long now = System.nanoTime();
+                    if ((mask & SoxComponent.RUNTIME) != 0) {
+                        valueUpdated(comp, comp.getLong(stamp), now);
+                    }
+                    if ((mask & SoxComponent.CONFIG) != 0) {
+                        writeUpdated(comp, comp.getFloat(setpoint), now);
+                    }
+                }
+            };
+        }
+        return comps;
+    }
+
+    private static void collect(SoxClient client, SoxComponent comp,
+                                List<SoxComponent> points) {
+        if (comp == null) {
+            return;
+        }
+        if (comp.type.name.equals("Point")) {
+            points.add(comp);
+        }
+        for (int id : comp.childrenIds()) {
+            collect(client, client.cache(id), points);
+        }
+    }
+
+    private void valueUpdated(SoxComponent comp, long stamp, long now) {
+        firstValue.compareAndSet(0, now);
+        if (valueSeen.compareAndSet(comp.id(), 0, now)) {
+            allValues.countDown();
+        }
+        if (stamp >= measureStart) {
+            changes.record(now - stamp);
+        }
+    }
+
+    private void writeUpdated(SoxComponent comp, float value, long now) {
+        PendingWrite write = pending.get(comp.id());
+        if (write != null && write.value == value
+                && pending.remove(comp.id(), write)) {
+            writes.record(now - write.start);
+        }
+    }
+
+    private void write(Sedona server, Node root,
+                       List<SoxComponent> comps, float value) {
+        SoxComponent comp = comps.get(random.nextInt(comps.size()));
+        SlotInfo info = null;
+        for (SlotInfo i : TypeCache.getSlots(comp.type)) {
+            if (i.getName().equals("setpoint")) {
+                info = i;
+            }
+        }
+        SoxComponent folder = comp.parent();
+        Node node = root.getChild("app")
+                .getChild(folder.name())
+                .getChild(comp.name())
+                .getChild("setpoint");
+
+        pending.put(comp.id(), new PendingWrite(System.nanoTime(), value));
+        if (server.getWriteQueue().enqueue(comp, info,
+                sedona.Float.make(value), node) == null) {
+            pending.remove(comp.id());
+            LOGGER.warn("Write queue is full");
+        }
+    }
+
+    private void report(DeviceSimulator sim, SoxClient client,
+                        int reconnects) {
+        long[] c = changes.snapshot();
+        long[] w = writes.snapshot();
+        LOGGER.info("Changes: sent={} received={} p50={}ms p95={}ms p99={}ms",
+                sim.getChanges(), Histogram.count(c),
+                Histogram.percentile(c, 0.5),
+                Histogram.percentile(c, 0.95),
+                Histogram.percentile(c, 0.99));
+        LOGGER.info("Writes: completed={} lost={} p50={}ms p95={}ms p99={}ms",
+                Histogram.count(w), pending.size(),
+                Histogram.percentile(w, 0.5),
+                Histogram.percentile(w, 0.95),
+                Histogram.percentile(w, 0.99));
+        int retries = 0;
+        if (client != null && client.session() != null) {
+            retries = client.session().numRetries();
+        }
+        LOGGER.info("Network: dropped={} retries={} reconnects={}",
+                sim.getDropped(), retries, reconnects);
+    }
+
+    private static int maxId(List<SoxComponent> comps) {
+        int max = 0;
+        for (SoxComponent c : comps) {
+            max = Math.max(max, c.id());
+        }
+        return max;
+    }
+
+    private static long millis(long start, long end) {
+        return TimeUnit.NANOSECONDS.toMillis(end - start);
+    }
+
+    private static class PendingWrite {
+
+        private final long start;
+        private final float value;
+
+        PendingWrite(long start, float value) {
+            this.start = start;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.dsa.iot.sedona;
+
+import sedona.dasp.DaspSocketInterface;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UDP interface for a DASP socket that randomly drops packets in both
+ * directions to simulate a lossy network.
+ */
+public class LossyInterface extends DaspSocketInterface {
+
+    private final Random random = new Random();
+    private final AtomicLong dropped = new AtomicLong();
+    private final DatagramSocket socket;
+    private final double loss;
+
+    /**
+     * @param port Local UDP port to bind to.
+     * @param loss Probability between 0 and 1 that a packet is dropped.
+     * @throws IOException The port could not be bound.
+     */
+    public LossyInterface(int port, double loss) throws IOException {
+        if (loss < 0 || loss >= 1) {
+            throw new IllegalArgumentException("loss must be in [0, 1)");
+        }
+        this.socket = new DatagramSocket(port);
+        this.loss = loss;
+    }
+
+    /**
+     * @return Amount of packets dropped so far.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public boolean routes(InetAddress address, int port) {
+        return true;
+    }
+
+    @Override
+    public void send(DatagramPacket packet) throws IOException {
+        if (!drop()) {
+            socket.send(packet);
+        }
+    }
+
+    @Override
+    protected void receive(DatagramPacket packet) throws IOException {
+        int length = packet.getLength();
+        while (true) {
+            packet.setLength(length);
+            socket.receive(packet);
+            if (!drop()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private boolean drop() {
+        if (loss > 0 && random.nextDouble() < loss) {
+            dropped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+}
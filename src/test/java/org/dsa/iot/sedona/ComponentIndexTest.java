@@ -0,0 +1,113 @@
+package org.dsa.iot.sedona;
+
+import org.junit.Before;
+import org.junit.Test;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ComponentIndexTest {
+
+    private FakeApp app;
+    private ComponentIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        // Two folders, the first one with 100 points and the second with 50
+        app = FakeApp.create(150);
+        index = new ComponentIndex();
+        putAll(app.getApp());
+    }
+
+    @Test
+    public void indexesEveryComponent() {
+        assertEquals(153, index.size());
+    }
+
+    @Test
+    public void findsByExactName() {
+        List<String> paths = paths(index.find(null, "point7", null, 10));
+        assertEquals(2, paths.size());
+        assertTrue(paths.contains("app/folder0/point7"));
+        assertTrue(paths.contains("app/folder1/point7"));
+    }
+
+    @Test
+    public void findsByType() {
+        assertEquals(150, index.find("sys::Point", null, null, 1000).size());
+        assertEquals(3, index.find("Folder", null, null, 1000).size());
+        assertEquals(0, index.find("other::Point", null, null, 1000).size());
+    }
+
+    @Test
+    public void findsByPathGlob() {
+        List<String> paths = paths(index.find(null, null, "app/folder1/point4?", 100));
+        assertEquals(10, paths.size());
+        assertTrue(paths.contains("app/folder1/point49"));
+    }
+
+    @Test
+    public void limitsMatches() {
+        assertEquals(5, index.find("sys::Point", "point*", null, 5).size());
+    }
+
+    @Test
+    public void removesComponentAndChildren() {
+        SoxComponent folder = folder(1);
+        index.remove(folder.id());
+        assertEquals(102, index.size());
+        assertEquals(1, index.find(null, "point7", null, 10).size());
+        assertEquals(0, index.find(null, null, "app/folder1*", 100).size());
+    }
+
+    @Test
+    public void dropsChildrenMissingFromUpdate() throws Exception {
+        SoxComponent folder = folder(1);
+        int[] children = folder.childrenIds();
+        int kept = children[0];
+        FakeApp.setChildren(folder, kept);
+        index.put(folder);
+
+        assertEquals(104, index.size());
+        List<ComponentIndex.Match> m = index.find(null, null, "app/folder1/*", 100);
+        assertEquals(1, m.size());
+        assertEquals(kept, m.get(0).getId());
+    }
+
+    @Test
+    public void listsDescendants() {
+        SoxComponent folder = folder(0);
+        List<Integer> ids = index.descendants(folder.id());
+        assertEquals(100, ids.size());
+        assertEquals(152, index.descendants(0).size());
+        // Listing does not remove anything
+        assertEquals(153, index.size());
+    }
+
+    private SoxComponent folder(int i) {
+        SoxClient client = app.getClient();
+        return client.cache(app.getApp().childrenIds()[i]);
+    }
+
+    private void putAll(SoxComponent comp) {
+        index.put(comp);
+        for (int id : comp.childrenIds()) {
+            putAll(app.getClient().cache(id));
+        }
+    }
+
+    private static List<String> paths(List<ComponentIndex.Match> matches) {
+        List<String> paths = new ArrayList<>();
+        for (ComponentIndex.Match m : matches) {
+            paths.add(m.getPath());
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+}
@@ -0,0 +1,134 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.Node;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import sedona.Type;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CovFilterTest {
+
+    private static Type point;
+
+    private Node server;
+    private CovFilter cov;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        point = FakeApp.schema().type("sys::Point");
+    }
+
+    @Before
+    public void setUp() {
+        server = new Node("server", null, null);
+        // Never started, so values held back are not swept
+        cov = new CovFilter(null, server);
+    }
+
+    @Test
+    public void publishesEveryChangeByDefault() {
+        CovFilter.State s = state("out");
+        assertTrue(cov.accept(s, sedona.Float.make(1)));
+        assertTrue(cov.accept(s, sedona.Float.make(1.01f)));
+        assertFalse(cov.accept(s, sedona.Float.make(1.01f)));
+    }
+
+    @Test
+    public void skipsChangesWithinDeadband() {
+        cov.set("", new CovSettings(0.5, false, 0, 0));
+        CovFilter.State s = state("out");
+        assertTrue(cov.accept(s, sedona.Float.make(10)));
+        assertFalse(cov.accept(s, sedona.Float.make(10.4f)));
+        assertFalse(cov.accept(s, sedona.Float.make(9.5f)));
+        assertTrue(cov.accept(s, sedona.Float.make(10.6f)));
+        // Compared against the last published value, not the last seen
+        assertFalse(cov.accept(s, sedona.Float.make(11)));
+    }
+
+    @Test
+    public void percentDeadbandScalesWithValue() {
+        cov.set("", new CovSettings(10, true, 0, 0));
+        CovFilter.State s = state("total");
+        assertTrue(cov.accept(s, sedona.Double.make(200)));
+        assertFalse(cov.accept(s, sedona.Double.make(219)));
+        assertTrue(cov.accept(s, sedona.Double.make(221)));
+    }
+
+    @Test
+    public void deadbandIgnoresNonNumericSlots() {
+        cov.set("", new CovSettings(5, false, 0, 0));
+        CovFilter.State s = state("enabled");
+        assertTrue(cov.accept(s, sedona.Bool.make(true)));
+        assertTrue(cov.accept(s, sedona.Bool.make(false)));
+
+        CovFilter.State mode = state("mode");
+        assertTrue(cov.accept(mode, sedona.Byte.make(0)));
+        assertTrue(cov.accept(mode, sedona.Byte.make(1)));
+    }
+
+    @Test
+    public void holdsBackValuesWithinMinInterval() {
+        cov.set("", new CovSettings(0, false, 60000, 0));
+        CovFilter.State s = state("out");
+        assertTrue(cov.accept(s, sedona.Float.make(1)));
+        assertFalse(cov.accept(s, sedona.Float.make(2)));
+        assertFalse(cov.accept(s, sedona.Float.make(3)));
+    }
+
+    @Test
+    public void publishesOnceMinIntervalElapsed() throws Exception {
+        cov.set("", new CovSettings(0, false, 20, 0));
+        CovFilter.State s = state("out");
+        assertTrue(cov.accept(s, sedona.Float.make(1)));
+        assertFalse(cov.accept(s, sedona.Float.make(2)));
+        Thread.sleep(40);
+        assertTrue(cov.accept(s, sedona.Float.make(3)));
+    }
+
+    @Test
+    public void nearestSettingsWin() {
+        Node folder = new Node("folder", server, null);
+        cov.set("", new CovSettings(100, false, 0, 0));
+        cov.set("folder", new CovSettings(0.1, false, 0, 0));
+
+        CovFilter.State near = new CovFilter.State(
+                new Node("out", folder, null), info("out"));
+        assertTrue(cov.accept(near, sedona.Float.make(1)));
+        assertTrue(cov.accept(near, sedona.Float.make(2)));
+
+        CovFilter.State far = state("out");
+        assertTrue(cov.accept(far, sedona.Float.make(1)));
+        assertFalse(cov.accept(far, sedona.Float.make(2)));
+    }
+
+    @Test
+    public void settingsChangeAppliesToKnownSlots() {
+        CovFilter.State s = state("out");
+        assertTrue(cov.accept(s, sedona.Float.make(1)));
+        cov.set("", new CovSettings(5, false, 0, 0));
+        assertFalse(cov.accept(s, sedona.Float.make(2)));
+        cov.set("", null);
+        assertTrue(cov.accept(s, sedona.Float.make(3)));
+    }
+
+    @Test
+    public void invalidatedValueIsPublishedAgain() {
+        Node n = new Node("out", server, null);
+        CovFilter.State s = new CovFilter.State(n, info("out"));
+        n.setMetaData(s);
+        assertTrue(cov.accept(s, sedona.Float.make(1)));
+        cov.invalidate(n);
+        assertTrue(cov.accept(s, sedona.Float.make(1)));
+    }
+
+    private CovFilter.State state(String slot) {
+        return new CovFilter.State(new Node(slot, server, null), info(slot));
+    }
+
+    private static SlotInfo info(String slot) {
+        return new SlotInfo(point.slot(slot));
+    }
+}
@@ -0,0 +1,252 @@
+package org.dsa.iot.sedona;
+
+import sedona.Bool;
+import sedona.Byte;
+import sedona.Depend;
+import sedona.Double;
+import sedona.Facets;
+import sedona.Float;
+import sedona.Int;
+import sedona.KitPart;
+import sedona.Long;
+import sedona.Schema;
+import sedona.Short;
+import sedona.Slot;
+import sedona.Type;
+import sedona.manifest.KitManifest;
+import sedona.manifest.ManifestDb;
+import sedona.manifest.SlotManifest;
+import sedona.manifest.TypeManifest;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+import sedona.sox.SoxUtil;
+import sedona.util.Version;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory component tree used by the tests and benchmarks. The app
+ * is served from the cache of a client that is never connected so no
+ * SOX traffic is generated. Components are created through the public
+ * constructor, the client state without a public setter is filled in
+ * by {@link Internals}.
+ */
+public class FakeApp {
+
+    /**
+     * Amount of points per folder.
+     */
+    private static final int FOLDER_SIZE = 100;
+
+    private static final String[] PRIMITIVES = {
+            "void", "bool", "byte", "short", "int",
+            "long", "float", "double", "Buf"
+    };
+
+    private static Schema schema;
+
+    private final SoxClient client;
+    private final SoxComponent app;
+    private final List<SoxComponent> points;
+
+    private FakeApp(SoxClient client, SoxComponent app,
+                    List<SoxComponent> points) {
+        this.client = client;
+        this.app = app;
+        this.points = points;
+    }
+
+    public SoxClient getClient() {
+        return client;
+    }
+
+    public SoxComponent getApp() {
+        return app;
+    }
+
+    public List<SoxComponent> getPoints() {
+        return points;
+    }
+
+    /**
+     * Creates an app with points split into folders.
+     *
+     * @param size Amount of points.
+     * @return Created app.
+     * @throws Exception The schema could not be created.
+     */
+    public static FakeApp create(int size) throws Exception {
+        Schema schema = schema();
+        Type folderType = schema.type("sys::Folder");
+        Type pointType = schema.type("sys::Point");
+
+        SoxClient client = new SoxClient(null, null, 0, "", "");
+        Internals.setSchema(client, schema);
+
+        int id = 0;
+        SoxComponent app = component(client, id++, folderType, "app", -1);
+
+        int folders = (size + FOLDER_SIZE - 1) / FOLDER_SIZE;
+        int[] folderIds = new int[folders];
+        List<SoxComponent> points = new ArrayList<>(size);
+        for (int f = 0; f < folders; f++) {
+            SoxComponent folder = component(client, id++, folderType,
+                                            "folder" + f, app.id());
+            folderIds[f] = folder.id();
+
+            int count = Math.min(FOLDER_SIZE, size - f * FOLDER_SIZE);
+            int[] pointIds = new int[count];
+            for (int p = 0; p < count; p++) {
+                SoxComponent point = component(client, id++, pointType,
+                                               "point" + p, folder.id());
+                pointIds[p] = point.id();
+                points.add(point);
+            }
+            Internals.setChildren(folder, pointIds);
+        }
+        Internals.setChildren(app, folderIds);
+        return new FakeApp(client, app, points);
+    }
+
+    /**
+     * Replaces the children of a component, as a tree update would.
+     *
+     * @param c Component to update.
+     * @param children IDs of the new children.
+     * @throws Exception The children could not be set.
+     */
+    public static void setChildren(SoxComponent c, int... children)
+                                                    throws Exception {
+        Internals.setChildren(c, children);
+    }
+
+    private static SoxComponent component(SoxClient client, int id,
+                                          Type type, String name,
+                                          int parent) throws Exception {
+        SoxComponent c = new SoxComponent(client, id, type);
+        Internals.setTree(c, name, parent);
+        Internals.cacheAdd(client, c);
+        return c;
+    }
+
+    /**
+     * Creates a schema with a synthetic sys kit containing the
+     * primitives, a folder and a point type with a slot of every
+     * primitive type.
+     *
+     * @return Schema of the fake app.
+     * @throws Exception The schema could not be created.
+     */
+    public static synchronized Schema schema() throws Exception {
+        if (schema != null) {
+            return schema;
+        }
+        initHome();
+
+        KitManifest kit = new KitManifest("sys");
+        kit.checksum = 0x5ed0a;
+        kit.version = Version.parse("1.0");
+        kit.depends = new Depend[0];
+
+        TypeManifest[] types = new TypeManifest[PRIMITIVES.length + 2];
+        for (int i = 0; i < PRIMITIVES.length; i++) {
+            types[i] = new TypeManifest(kit, i, PRIMITIVES[i],
+                                        new Facets(), null, 0, 0);
+            types[i].slots = new SlotManifest[0];
+        }
+
+        int id = PRIMITIVES.length;
+        TypeManifest folder = new TypeManifest(kit, id, "Folder",
+                                               new Facets(), null, 0, 0);
+        folder.slots = new SlotManifest[] {
+                new SlotManifest(folder, 0, "meta", new Facets(), "int",
+                                 Slot.CONFIG, Int.make(1))
+        };
+        types[id++] = folder;
+
+        TypeManifest point = new TypeManifest(kit, id, "Point",
+                                              new Facets(), null, 0, 0);
+        Facets range = new Facets();
+        range.sets("range", "off, on, auto");
+        point.slots = new SlotManifest[] {
+                new SlotManifest(point, 0, "meta", new Facets(), "int",
+                                 Slot.CONFIG, Int.make(1)),
+                new SlotManifest(point, 1, "mode", range, "byte",
+                                 Slot.CONFIG, Byte.make(0)),
+                new SlotManifest(point, 2, "enabled", new Facets(), "bool",
+                                 Slot.CONFIG, Bool.make(true)),
+                new SlotManifest(point, 3, "priority", new Facets(), "short",
+                                 Slot.CONFIG, Short.make(8)),
+                new SlotManifest(point, 4, "out", new Facets(), "float",
+                                 0, Float.make(0)),
+                new SlotManifest(point, 5, "total", new Facets(), "double",
+                                 0, Double.make(0)),
+                new SlotManifest(point, 6, "count", new Facets(), "long",
+                                 0, Long.make(0)),
+                new SlotManifest(point, 7, "reset", new Facets(), "void",
+                                 Slot.ACTION, null)
+        };
+        types[id] = point;
+        kit.types = types;
+
+        if (!ManifestDb.save(kit)) {
+            throw new IOException("Failed to save manifest");
+        }
+        schema = Schema.load(new KitPart[] { kit.part() });
+        return schema;
+    }
+
+    private static void initHome() throws IOException {
+        if (System.getProperty("sedona.home") == null) {
+            String home = Files.createTempDirectory("sedona").toString();
+            System.setProperty("sedona.home", home);
+        }
+    }
+
+    /**
+     * The only place the fixture reaches into sedona.sox. SoxClient has
+     * no public API to fill its cache without a server, so the tree and
+     * cache of the fake components are set by reflection on their
+     * package-private members. Keep every such access in here.
+     */
+    private static class Internals {
+
+        static void setSchema(SoxClient client, Schema schema) throws Exception {
+            SoxUtil util = (SoxUtil) field(SoxClient.class, "util").get(client);
+            util.setSchema(schema);
+        }
+
+        static void setTree(SoxComponent c, String name, int parent)
+                                                        throws Exception {
+            field(SoxComponent.class, "name").set(c, name);
+            field(SoxComponent.class, "parent").setInt(c, parent);
+            setChildren(c, new int[0]);
+        }
+
+        static void setChildren(SoxComponent c, int[] children) throws Exception {
+            method(SoxComponent.class, "setChildren", int[].class).invoke(c, (Object) children);
+        }
+
+        static void cacheAdd(SoxClient client, SoxComponent c) throws Exception {
+            method(SoxClient.class, "cacheAdd", SoxComponent.class).invoke(client, c);
+        }
+
+        private static Field field(Class<?> clazz, String name) throws Exception {
+            Field f = clazz.getDeclaredField(name);
+            f.setAccessible(true);
+            return f;
+        }
+
+        private static Method method(Class<?> clazz, String name,
+                                     Class<?>... types) throws Exception {
+            Method m = clazz.getDeclaredMethod(name, types);
+            m.setAccessible(true);
+            return m;
+        }
+    }
+}
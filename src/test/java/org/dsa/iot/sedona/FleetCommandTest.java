@@ -0,0 +1,65 @@
+package org.dsa.iot.sedona;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import sedona.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FleetCommandTest {
+
+    private static Type point;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        point = FakeApp.schema().type("sys::Point");
+    }
+
+    @Test
+    public void parsesNumbers() {
+        assertEquals(sedona.Float.make(1.5f), parse("out", "1.5"));
+        assertEquals(sedona.Double.make(-2.25), parse("total", "-2.25"));
+        assertEquals(sedona.Long.make(1L << 40), parse("count", "1099511627776"));
+        assertEquals(sedona.Short.make(3), parse("priority", "3"));
+        assertEquals(sedona.Int.make(7), parse("meta", "7"));
+    }
+
+    @Test
+    public void parsesBool() {
+        assertEquals(sedona.Bool.make(false), parse("enabled", "false"));
+        assertEquals(sedona.Bool.make(true), parse("enabled", "true"));
+    }
+
+    @Test
+    public void parsesEnumNames() {
+        assertEquals(sedona.Byte.make(2), parse("mode", "auto"));
+        assertEquals(sedona.Byte.make(0), parse("mode", "off"));
+    }
+
+    @Test
+    public void parsesEnumOrdinals() {
+        assertEquals(sedona.Byte.make(1), parse("mode", "1"));
+    }
+
+    @Test
+    public void emptyValueIsNull() {
+        assertNull(parse("out", ""));
+        assertNull(parse("out", null));
+    }
+
+    @Test
+    public void actionWithoutArgumentIsNull() {
+        assertNull(parse("reset", "1"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsMalformedNumbers() {
+        parse("out", "abc");
+    }
+
+    private static sedona.Value parse(String slot, String text) {
+        SlotInfo info = new SlotInfo(point.slot(slot));
+        return FleetCommand.parse(info, text);
+    }
+}
@@ -0,0 +1,95 @@
+package org.dsa.iot.sedona;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void emptyPercentileIsZero() {
+        Histogram h = new Histogram();
+        assertEquals(0, Histogram.count(h.snapshot()));
+        assertEquals(0, Histogram.percentile(h.snapshot(), 0.5), DELTA);
+    }
+
+    @Test
+    public void smallLatenciesHaveOwnBuckets() {
+        for (int micros = 0; micros < 4; micros++) {
+            Histogram h = new Histogram();
+            h.record(micros * 1000L);
+            double expected = (micros + 1) / 1000.0;
+            assertEquals(expected, Histogram.percentile(h.snapshot(), 1), DELTA);
+        }
+    }
+
+    @Test
+    public void negativeLatencyGoesToFirstBucket() {
+        Histogram h = new Histogram();
+        h.record(-5000);
+        assertEquals(0.001, Histogram.percentile(h.snapshot(), 1), DELTA);
+    }
+
+    @Test
+    public void powersOfTwoAreSplitInFour() {
+        // 8..15us is split into 8-9, 10-11, 12-13 and 14-15
+        assertBound(8, 10);
+        assertBound(9, 10);
+        assertBound(10, 12);
+        assertBound(13, 14);
+        assertBound(15, 16);
+        assertBound(16, 20);
+        assertBound(1000, 1024);
+    }
+
+    @Test
+    public void hugeLatencyGoesToLastBucket() {
+        Histogram h = new Histogram();
+        h.record(Long.MAX_VALUE);
+        long[] counts = h.snapshot();
+        assertEquals(1, counts[counts.length - 1]);
+    }
+
+    @Test
+    public void percentileOfSeveralBuckets() {
+        Histogram h = new Histogram();
+        for (int i = 0; i < 90; i++) {
+            h.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            h.record(1000000);
+        }
+        long[] counts = h.snapshot();
+        assertEquals(100, Histogram.count(counts));
+        assertEquals(0.002, Histogram.percentile(counts, 0.5), DELTA);
+        assertEquals(0.002, Histogram.percentile(counts, 0.9), DELTA);
+        assertEquals(1.024, Histogram.percentile(counts, 0.95), DELTA);
+        assertEquals(0.002, Histogram.percentile(counts, 0), DELTA);
+    }
+
+    @Test
+    public void diffKeepsNewRecords() {
+        Histogram h = new Histogram();
+        h.record(1000);
+        long[] before = h.snapshot();
+        h.record(1000);
+        h.record(50000);
+        long[] d = Histogram.diff(h.snapshot(), before);
+        assertEquals(2, Histogram.count(d));
+
+        Histogram expected = new Histogram();
+        expected.record(1000);
+        expected.record(50000);
+        assertArrayEquals(expected.snapshot(), d);
+    }
+
+    private static void assertBound(long micros, long upper) {
+        Histogram h = new Histogram();
+        h.record(micros * 1000);
+        double ms = Histogram.percentile(h.snapshot(), 1);
+        assertEquals(micros + "us", upper / 1000.0, ms, DELTA);
+    }
+}
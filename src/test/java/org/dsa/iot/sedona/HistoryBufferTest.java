@@ -0,0 +1,78 @@
+package org.dsa.iot.sedona;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HistoryBufferTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void skipsEqualValues() {
+        HistoryBuffer b = new HistoryBuffer(history(0), 4, 4);
+        b.add(1, 1);
+        b.add(2, 1);
+        b.add(3, 2);
+        b.add(4, 1);
+        assertRecords(b.read(0, Long.MAX_VALUE),
+                      new long[]{1, 3, 4}, new double[]{1, 2, 1});
+    }
+
+    @Test
+    public void wrapsAroundOnceFull() {
+        HistoryBuffer b = new HistoryBuffer(history(0), 8, 4);
+        for (int i = 1; i <= 6; i++) {
+            b.add(i, i);
+        }
+        assertRecords(b.read(0, Long.MAX_VALUE),
+                      new long[]{3, 4, 5, 6}, new double[]{3, 4, 5, 6});
+        assertEquals(4 * HistoryBuffer.RECORD_BYTES, b.getBytes());
+    }
+
+    @Test
+    public void growsUpToDepth() {
+        HistoryBuffer b = new HistoryBuffer(history(1), 6, 2);
+        for (int i = 1; i <= 8; i++) {
+            b.add(i, i);
+        }
+        assertRecords(b.read(0, Long.MAX_VALUE),
+                      new long[]{3, 4, 5, 6, 7, 8},
+                      new double[]{3, 4, 5, 6, 7, 8});
+        assertEquals(6 * HistoryBuffer.RECORD_BYTES, b.getBytes());
+    }
+
+    @Test
+    public void wrapsAroundOnceBudgetIsUsedUp() {
+        History history = history(1);
+        history.reserve(1024 * 1024 - HistoryBuffer.RECORD_BYTES * 2);
+        HistoryBuffer b = new HistoryBuffer(history, 8, 2);
+        for (int i = 1; i <= 6; i++) {
+            b.add(i, i);
+        }
+        assertRecords(b.read(0, Long.MAX_VALUE),
+                      new long[]{3, 4, 5, 6}, new double[]{3, 4, 5, 6});
+    }
+
+    @Test
+    public void readsTimeRange() {
+        HistoryBuffer b = new HistoryBuffer(history(0), 4, 4);
+        for (int i = 1; i <= 6; i++) {
+            b.add(i * 10, i);
+        }
+        assertRecords(b.read(40, 50),
+                      new long[]{40, 50}, new double[]{4, 5});
+        assertEquals(0, b.read(0, 20).size());
+    }
+
+    private static History history(int memory) {
+        return new History("test", 1000, memory);
+    }
+
+    private static void assertRecords(HistoryBuffer.Records r,
+                                      long[] times, double[] values) {
+        assertArrayEquals(times, r.times);
+        assertArrayEquals(values, r.values, DELTA);
+    }
+}
@@ -0,0 +1,212 @@
+package org.dsa.iot.sedona;
+
+import org.dsa.iot.dslink.node.actions.table.Row;
+import org.dsa.iot.dslink.node.actions.table.Table;
+import org.dsa.iot.dslink.node.value.Value;
+import org.dsa.iot.dslink.util.json.JsonArray;
+import org.dsa.iot.dslink.util.json.JsonObject;
+import org.junit.Before;
+import org.junit.Test;
+import sedona.Link;
+import sedona.sox.SoxClient;
+import sedona.sox.SoxComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Dry runs of templates against a fake app. Config and links are served
+ * from the cache instead of being read from a server.
+ */
+public class ProvisionerTest {
+
+    private FakeApp app;
+    private Map<Integer, Link[]> links;
+
+    @Before
+    public void setUp() throws Exception {
+        app = FakeApp.create(150);
+        links = new HashMap<>();
+    }
+
+    @Test
+    public void unchangedTemplateHasNoChanges() {
+        JsonObject point = component("point0", "sys::Point");
+        point.put("config", new JsonObject()
+                .put("priority", 8)
+                .put("enabled", true)
+                .put("mode", "off"));
+        JsonObject folder = component("folder0", "sys::Folder");
+        folder.put("children", new JsonArray().add(point));
+
+        List<String[]> rows = run(template(folder));
+        assertEquals(1, rows.size());
+        assertRow(rows.get(0), "done", "app", "0 pending, 0 failed", null);
+    }
+
+    @Test
+    public void reportsChangedConfig() {
+        JsonObject point = component("point0", "sys::Point");
+        point.put("config", new JsonObject()
+                .put("priority", 8)
+                .put("mode", "auto")
+                .put("enabled", false));
+        JsonObject folder = component("folder0", "sys::Folder");
+        folder.put("children", new JsonArray().add(point));
+
+        List<String[]> rows = run(template(folder));
+        assertEquals(3, rows.size());
+        assertRow(rows.get(0), "write", "app/folder0/point0.mode", "2", null);
+        assertRow(rows.get(1), "write", "app/folder0/point0.enabled", "false", null);
+        assertRow(rows.get(2), "done", "app", "2 pending, 0 failed", null);
+    }
+
+    @Test
+    public void reportsAddsAndRenames() {
+        JsonObject added = component("point100", "sys::Point");
+        JsonObject folder = component("folder0", "sys::Folder");
+        folder.put("children", new JsonArray().add(added));
+        JsonObject renamed = component("ahu", "sys::Folder");
+        renamed.put("was", "folder1");
+
+        List<String[]> rows = run(template(folder, renamed));
+        assertEquals(3, rows.size());
+        assertRow(rows.get(0), "add", "app/folder0/point100", "sys::Point", null);
+        assertRow(rows.get(1), "rename", "app/ahu", "from folder1", null);
+        assertRow(rows.get(2), "done", "app", "2 pending, 0 failed", null);
+    }
+
+    @Test
+    public void rejectsTypeMismatch() {
+        JsonObject folder = component("folder0", "sys::Point");
+
+        List<String[]> rows = run(template(folder));
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), "component", "app/folder0", null, "Type is sys::Folder");
+        assertRow(rows.get(1), "done", "app", "0 pending, 1 failed", null);
+    }
+
+    @Test
+    public void rejectsUnknownSlot() {
+        JsonObject point = component("point0", "sys::Point");
+        point.put("config", new JsonObject().put("out", 1));
+        JsonObject folder = component("folder0", "sys::Folder");
+        folder.put("children", new JsonArray().add(point));
+
+        List<String[]> rows = run(template(folder));
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), "component", "app/folder0/point0", null,
+                  "out is not a config slot");
+    }
+
+    @Test
+    public void reportsReorder() throws Exception {
+        JsonObject folder = component("folder1", "sys::Folder");
+        folder.put("reorder", true);
+        folder.put("children", new JsonArray()
+                .add(component("point1", "sys::Point"))
+                .add(component("point0", "sys::Point")));
+
+        List<String[]> rows = run(template(folder));
+        assertEquals(2, rows.size());
+        assertRow(rows.get(0), "reorder", "app/folder1", null, null);
+
+        // Already in order
+        folder.put("children", new JsonArray()
+                .add(component("point0", "sys::Point"))
+                .add(component("point1", "sys::Point")));
+        rows = run(template(folder));
+        assertEquals(1, rows.size());
+    }
+
+    @Test
+    public void skipsExistingLinks() throws Exception {
+        SoxClient client = app.getClient();
+        SoxComponent folder = client.cache(app.getApp().childrenIds()[0]);
+        SoxComponent p0 = folder.child("point0");
+        SoxComponent p1 = folder.child("point1");
+        links.put(p0.id(), new Link[] {
+                new Link(p0, p0.type.slot("out"), p1, p1.type.slot("total"))
+        });
+
+        JsonObject template = template();
+        template.put("links", new JsonArray()
+                .add(link("folder0/point0.out", "folder0/point1.total"))
+                .add(link("folder0/point1.out", "folder0/point2.total"))
+                .add(link("folder0/point1.out", "folder0/missing.total")));
+
+        List<String[]> rows = run(template);
+        assertEquals(3, rows.size());
+        assertRow(rows.get(0), "link",
+                  "folder0/point1.out -> folder0/point2.total", null, null);
+        // Components still to be added in a dry run
+        assertRow(rows.get(1), "link",
+                  "folder0/point1.out -> folder0/missing.total", null, null);
+        assertRow(rows.get(2), "done", "app", "2 pending, 0 failed", null);
+    }
+
+    private List<String[]> run(JsonObject template) {
+        Provisioner p = new Provisioner(null, template, true) {
+            @Override
+            void refresh(SoxClient client, List<SoxComponent> existing) {
+            }
+
+            @Override
+            Map<Integer, Link[]> readLinks(int[] ids) {
+                return links;
+            }
+        };
+        RecordingTable table = new RecordingTable();
+        p.run(table, app.getClient());
+        assertTrue(table.closed);
+        return table.rows;
+    }
+
+    private static JsonObject template(JsonObject... components) {
+        JsonArray array = new JsonArray();
+        for (JsonObject c : components) {
+            array.add(c);
+        }
+        return new JsonObject().put("components", array);
+    }
+
+    private static JsonObject component(String name, String type) {
+        return new JsonObject().put("name", name).put("type", type);
+    }
+
+    private static JsonObject link(String from, String to) {
+        return new JsonObject().put("from", from).put("to", to);
+    }
+
+    private static void assertRow(String[] row, String op, String path,
+                                  String detail, String error) {
+        assertEquals(Arrays.asList(op, path, detail, error), Arrays.asList(row));
+    }
+
+    private static class RecordingTable extends Table {
+
+        private final List<String[]> rows = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void addRow(Row row) {
+            List<Value> values = row.getValues();
+            String[] strings = new String[values.size()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = values.get(i).getString();
+            }
+            rows.add(strings);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}